@@ -1,11 +1,22 @@
 package org.example;
 
 import org.example.db.DatabaseManager;
+import org.example.jobs.BorrowRecordArchiver;
+import org.example.jobs.DueDateReminderService;
+import org.example.jobs.FileReminderSink;
+import org.example.jobs.FineCalculationJob;
+import org.example.jobs.InventoryReconciliationJob;
+import org.example.jobs.OverdueScanner;
 import org.example.network.Server;
 
+import java.nio.file.Paths;
+
 public class MainServer {
     private static final int PORT = 12345;
     private static final int THREAD_POOL_SIZE = 10; // Number of concurrent clients
+    private static final String REMINDER_FILE = "reminders.log"; // Due-soon/overdue reminders for the mailer
+    // Drifted book quantities are only reported unless started with -Dlibrary.inventory.repair=true
+    private static final boolean REPAIR_INVENTORY_DRIFT = Boolean.getBoolean("library.inventory.repair");
 
     public static void main(String[] args) {
         // Initialize database first (creates tables, default admin if not present)
@@ -13,10 +24,28 @@ public class MainServer {
         DatabaseManager.initializeDatabase();
         System.out.println("Database initialization complete.");
 
-        Server server = new Server(PORT, THREAD_POOL_SIZE);
+        BorrowRecordArchiver archiver = new BorrowRecordArchiver();
+        archiver.start();
+        OverdueScanner overdueScanner = new OverdueScanner();
+        overdueScanner.start();
+        DueDateReminderService reminderService = new DueDateReminderService(new FileReminderSink(Paths.get(REMINDER_FILE)));
+        reminderService.start(); // Sends only on the instance holding the reminder lock
+        FineCalculationJob fineJob = new FineCalculationJob(Paths.get(FineCalculationJob.DEFAULT_RATES_FILE),
+                FineCalculationJob.defaultParallelism());
+        fineJob.start();
+        InventoryReconciliationJob inventoryJob = new InventoryReconciliationJob(
+                Paths.get(InventoryReconciliationJob.DEFAULT_REPORT_FILE), REPAIR_INVENTORY_DRIFT, 2); // Light on the shared database
+        inventoryJob.start(); // Runs on one instance at a time
+
+        Server server = new Server(PORT, THREAD_POOL_SIZE, overdueScanner, reminderService);
 
         // Add a shutdown hook for graceful server shutdown
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            archiver.stop();
+            overdueScanner.stop();
+            reminderService.stop();
+            fineJob.stop();
+            inventoryJob.stop();
             if (server.isRunning()) {
                 System.out.println("Shutdown hook triggered. Stopping server...");
                 server.stop();
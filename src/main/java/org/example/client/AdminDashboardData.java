@@ -0,0 +1,45 @@
+package org.example.client;
+
+import org.example.model.Book;
+import org.example.model.User;
+
+import java.util.List;
+
+// Everything the admin dashboard shows on open: the book and user lists, plus one BATCH for the rest, all three
+// pipelined on the connection.
+public class AdminDashboardData {
+    private final List<Book> books;
+    private final List<User> users;
+    private final BorrowRecordPage borrowRecords; // First page only; the table loads more as it scrolls
+    private final List<String> popularBooks;  // bookId|title|author|category|qty|totalQty|borrowCount
+    private final List<String> trendingBooks; // Same format as popularBooks
+
+    public AdminDashboardData(List<Book> books, List<User> users, BorrowRecordPage borrowRecords,
+                              List<String> popularBooks, List<String> trendingBooks) {
+        this.books = books;
+        this.users = users;
+        this.borrowRecords = borrowRecords;
+        this.popularBooks = popularBooks;
+        this.trendingBooks = trendingBooks;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public BorrowRecordPage getBorrowRecords() {
+        return borrowRecords;
+    }
+
+    public List<String> getPopularBooks() {
+        return popularBooks;
+    }
+
+    public List<String> getTrendingBooks() {
+        return trendingBooks;
+    }
+}
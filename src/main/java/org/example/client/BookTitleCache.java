@@ -0,0 +1,68 @@
+package org.example.client;
+
+import org.example.model.Book;
+import org.example.model.BorrowRecord;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Book titles for the borrow tables, which only carry book IDs. Titles are learned from any catalog the
+ * dashboard has loaded; whatever is still missing is fetched with one GET_BOOKS_BY_IDS request instead
+ * of one GET_BOOK_BY_ID per row. Only used from the JavaFX Application Thread.
+ */
+public class BookTitleCache {
+    private final Map<String, String> titles = new HashMap<>();
+    private final ClientService clientService;
+
+    public BookTitleCache(ClientService clientService) {
+        this.clientService = clientService;
+    }
+
+    public void rememberAll(Collection<Book> books) {
+        for (Book book : books) {
+            titles.put(book.getBookId(), book.getTitle());
+        }
+    }
+
+    public boolean contains(String bookId) {
+        return titles.containsKey(bookId);
+    }
+
+    public String titleOf(String bookId) {
+        String title = titles.get(bookId);
+        return title != null ? title : "Unknown Title (ID: " + bookId + ")";
+    }
+
+    // Makes sure every book referenced by the records has a title, then runs onResolved on the FX thread.
+    // onResolved also runs if the lookup fails, so callers can fall back to the placeholder titles.
+    public void resolve(Collection<BorrowRecord> records, Runnable onResolved) {
+        Set<String> missing = records.stream()
+                .map(BorrowRecord::getBookId)
+                .filter(id -> !titles.containsKey(id))
+                .collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            onResolved.run();
+            return;
+        }
+        Task<Map<String, Book>> task = new Task<>() {
+            @Override protected Map<String, Book> call() throws Exception {
+                return clientService.getBooksByIds(missing);
+            }
+        };
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            rememberAll(task.getValue().values());
+            onResolved.run();
+        }));
+        task.setOnFailed(e -> Platform.runLater(() -> {
+            System.err.println("Error resolving book titles: " + task.getException().getMessage());
+            onResolved.run();
+        }));
+        clientService.execute(task);
+    }
+}
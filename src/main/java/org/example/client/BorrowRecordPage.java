@@ -0,0 +1,28 @@
+package org.example.client;
+
+import org.example.model.BorrowRecord;
+
+import java.util.List;
+
+// One page of the admin's borrow record list, newest first.
+public class BorrowRecordPage {
+    private final List<BorrowRecord> records;
+    private final String nextCursor; // Pass back to get the next page; null on the last page
+
+    public BorrowRecordPage(List<BorrowRecord> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BorrowRecord> getRecords() {
+        return records;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.client;
+
+import org.example.model.Book;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Client-side copy of the catalog with a word-prefix index per search field, so searches while typing can be
+ * answered without a round trip. Each title, author and category is split into lower-case words and every word
+ * maps to the IDs of the books containing it; a query matches a book when each query word is the start of one of
+ * the book's words and the field contains the whole term, i.e. the server's LIKE '%term%' restricted to matches
+ * that start at a word boundary. Like the server search, only books with copies available are returned.
+ * Only used from the JavaFX Application Thread.
+ */
+public class CatalogIndex {
+    public static final long MAX_AGE_MILLIS = 60_000; // After this the server is asked again
+
+    private static final String[] FIELDS = {"title", "author", "category"};
+
+    private final Map<String, Book> books = new LinkedHashMap<>();
+    private final Map<String, TreeMap<String, Set<String>>> indexes = new HashMap<>();
+    private boolean complete = false;
+    private long loadedAt = 0;
+
+    public CatalogIndex() {
+        for (String field : FIELDS) {
+            indexes.put(field, new TreeMap<>());
+        }
+    }
+
+    // Replaces the cached catalog with a full listing from the server.
+    public void load(List<Book> allBooks) {
+        load(allBooks, System.currentTimeMillis());
+    }
+
+    // As load(allBooks), for a listing that was fetched at an earlier time (e.g. read back from a snapshot file).
+    public void load(List<Book> allBooks, long fetchedAt) {
+        books.clear();
+        indexes.values().forEach(Map::clear);
+        for (Book book : allBooks) {
+            books.put(book.getBookId(), book);
+            index(book);
+        }
+        complete = true;
+        loadedAt = fetchedAt;
+    }
+
+    // Merges individual books (e.g. server search results) without making the cache count as complete or fresh.
+    public void update(Collection<Book> changed) {
+        for (Book book : changed) {
+            Book old = books.put(book.getBookId(), book);
+            if (old != null) {
+                unindex(old);
+            }
+            index(book);
+        }
+    }
+
+    public List<Book> getBooks() {
+        return new ArrayList<>(books.values());
+    }
+
+    // Forget that the cache is up to date, e.g. after a borrow or return changed quantities.
+    public void invalidate() {
+        loadedAt = 0;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // True when searches can be answered locally: a full catalog has been loaded recently.
+    public boolean isFresh() {
+        return complete && System.currentTimeMillis() - loadedAt < MAX_AGE_MILLIS;
+    }
+
+    /**
+     * Builds a filter for a FilteredList over the cached books. An empty term shows every book (the "show all"
+     * view, including books that are out of stock); field is one of title, author or category.
+     */
+    public Predicate<Book> matcher(String field, String term) {
+        String needle = term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return null;
+        }
+        TreeMap<String, Set<String>> index = indexes.get(field);
+        Function<Book, String> value = valueOf(field);
+        if (index == null || value == null) {
+            return book -> false;
+        }
+
+        Set<String> candidates = null;
+        for (String word : words(needle)) {
+            Set<String> matches = new HashSet<>();
+            // Every indexed word starting with this query word
+            for (Set<String> ids : index.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                matches.addAll(ids);
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.retainAll(matches);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        Set<String> result = new HashSet<>();
+        Collection<String> toCheck = candidates != null ? candidates : books.keySet(); // No words (e.g. "-"): scan
+        for (String bookId : toCheck) {
+            Book book = books.get(bookId);
+            String text = value.apply(book);
+            if (book.getQuantity() > 0 && text != null && text.toLowerCase(Locale.ROOT).contains(needle)) {
+                result.add(bookId);
+            }
+        }
+        return book -> result.contains(book.getBookId());
+    }
+
+    private void index(Book book) {
+        for (String field : FIELDS) {
+            TreeMap<String, Set<String>> index = indexes.get(field);
+            for (String word : words(valueOf(field).apply(book))) {
+                index.computeIfAbsent(word, w -> new HashSet<>()).add(book.getBookId());
+            }
+        }
+    }
+
+    private void unindex(Book book) {
+        for (String field : FIELDS) {
+            TreeMap<String, Set<String>> index = indexes.get(field);
+            for (String word : words(valueOf(field).apply(book))) {
+                Set<String> ids = index.get(word);
+                if (ids != null && ids.remove(book.getBookId()) && ids.isEmpty()) {
+                    index.remove(word);
+                }
+            }
+        }
+    }
+
+    private static Function<Book, String> valueOf(String field) {
+        switch (field) {
+            case "title": return Book::getTitle;
+            case "author": return Book::getAuthor;
+            case "category": return Book::getCategory;
+            default: return null;
+        }
+    }
+
+    private static Set<String> words(String text) {
+        Set<String> words = new HashSet<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.client;
+
+import org.example.model.Book;
+import org.example.model.BorrowRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the last catalog and borrow list a user saw in a small binary file under ~/.library-client, so the user
+ * dashboard can show them the moment it opens and reconcile with the server afterwards.
+ *
+ * File layout (big-endian): magic, version, savedAt millis, book count, books, record count, records.
+ * Strings are a length-prefixed UTF-8 byte run (-1 for null), dates are epoch days (Long.MIN_VALUE for null).
+ * The file is read into one heap buffer with a single channel read and replaced atomically when written, so a crash
+ * mid-write leaves the previous snapshot intact. It is deliberately not memory-mapped: on Windows a mapping stays
+ * open until the buffer is garbage collected, and replacing a file with an open mapped view fails.
+ */
+public class CatalogSnapshotStore {
+    private static final int MAGIC = 0x4C42534E; // "LBSN"
+    private static final int VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Path file;
+
+    public static class Snapshot {
+        private final List<Book> books;
+        private final List<BorrowRecord> borrowRecords;
+        private final long savedAt;
+
+        public Snapshot(List<Book> books, List<BorrowRecord> borrowRecords, long savedAt) {
+            this.books = books;
+            this.borrowRecords = borrowRecords;
+            this.savedAt = savedAt;
+        }
+
+        public List<Book> getBooks() { return books; }
+        public List<BorrowRecord> getBorrowRecords() { return borrowRecords; }
+        public long getSavedAt() { return savedAt; }
+    }
+
+    public CatalogSnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    // One snapshot per user, since the borrow list is personal.
+    public static CatalogSnapshotStore forUser(String userId) {
+        String safeId = userId.replaceAll("[^A-Za-z0-9_-]", "_");
+        return new CatalogSnapshotStore(Paths.get(System.getProperty("user.home"), ".library-client", "snapshot-" + safeId + ".bin"));
+    }
+
+    // Returns null if there is no usable snapshot (missing, from another version or damaged).
+    public Snapshot load() {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readFully(channel);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                System.err.println("Ignoring catalog snapshot with unknown format: " + file);
+                return null;
+            }
+            long savedAt = buffer.getLong();
+            int bookCount = readCount(buffer);
+            List<Book> books = new ArrayList<>(bookCount);
+            for (int i = 0; i < bookCount; i++) {
+                books.add(new Book(readString(buffer), readString(buffer), readString(buffer), readString(buffer),
+                        buffer.getInt(), buffer.getInt()));
+            }
+            int recordCount = readCount(buffer);
+            List<BorrowRecord> records = new ArrayList<>(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                records.add(new BorrowRecord(buffer.getInt(), readString(buffer), readString(buffer),
+                        readDate(buffer), readDate(buffer), readDate(buffer)));
+            }
+            return new Snapshot(Collections.unmodifiableList(books), Collections.unmodifiableList(records), savedAt);
+        } catch (NoSuchFileException e) {
+            return null; // First start for this user
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            System.err.println("Could not read catalog snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot too large: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new BufferUnderflowException(); // Truncated while reading
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Called off the FX thread; the lists must not be modified while this runs.
+    public void save(List<Book> books, List<BorrowRecord> borrowRecords) {
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(books.size());
+                for (Book book : books) {
+                    writeString(out, book.getBookId());
+                    writeString(out, book.getTitle());
+                    writeString(out, book.getAuthor());
+                    writeString(out, book.getCategory());
+                    out.writeInt(book.getQuantity());
+                    out.writeInt(book.getTotalQuantity());
+                }
+                out.writeInt(borrowRecords.size());
+                for (BorrowRecord record : borrowRecords) {
+                    out.writeInt(record.getRecordId());
+                    writeString(out, record.getUserId());
+                    writeString(out, record.getBookId());
+                    writeDate(out, record.getBorrowDate());
+                    writeDate(out, record.getDueDate());
+                    writeDate(out, record.getReturnDate());
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp); // Only still there if the move failed
+            }
+        } catch (IOException e) {
+            System.err.println("Could not save catalog snapshot " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) { // Every entry takes at least one byte
+            throw new IllegalArgumentException("Corrupt entry count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException(); // Truncated file
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static LocalDate readDate(ByteBuffer buffer) {
+        long epochDay = buffer.getLong();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_DATE : date.toEpochDay());
+    }
+}
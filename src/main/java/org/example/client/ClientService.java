@@ -1,35 +1,97 @@
 package org.example.client;
 import org.example.model.Book;
 import org.example.model.BorrowRecord;
+import org.example.model.BorrowRecordQuery;
 import org.example.model.Role;
 import org.example.model.User; // Assuming User model is accessible
+import org.example.network.ExportStream;
+import org.example.network.FrameCodec;
+import org.example.network.ProtocolLog;
 import org.example.network.RequestType; // From your backend
+import org.example.network.StreamingResponse;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter; // For UTF-8
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets; // For UTF-8
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 public class ClientService {
+    // The protocol is strictly one response line per request line on a single socket, so any parallelism beyond
+    // a few workers only queues up on the connection lock. Keep the pool small and the threads daemon.
+    private static final int IO_THREADS = 4;
+    private static final int CONNECT_TIMEOUT_MS = 5000; // Don't wait for the OS default (can be minutes) when the server is down
+    // A server that stops answering for this long is treated like a dropped connection (reconnect), but the request
+    // is only sent again if it carries an idempotency key: a slow read is probably still running on the server.
+    // Counts silence between reads, so large responses that keep arriving are not cut off.
+    private static final int READ_TIMEOUT_MS = 15000;
+    // Reconnect supervision while a user is logged in: exponential backoff with jitter, about 15s in total,
+    // which covers a server restart during a deploy.
+    private static final int RECONNECT_ATTEMPTS = 6;
+    private static final long RECONNECT_BASE_DELAY_MS = 250;
+    private static final long RECONNECT_MAX_DELAY_MS = 8000;
+    private static final int MAX_REPLAYS = 2; // Times a read is re-sent after the connection dropped under it
+
     private static ClientService instance;
     private Socket socket;
     private PrintWriter writer;
     private BufferedReader reader;
+    private FrameCodec codec = new FrameCodec(); // Recreated per connection; compression state is per connection
     private final String hostname = "localhost"; // Or get from config
     private final int port = 12345;          // Or get from config
 
-    private User currentUser; // Store logged-in user info
+    // Guards the socket, its streams and the codec. Fair, so concurrent callers are served in arrival order
+    // and a request/response exchange can never interleave with another one.
+    private final ReentrantLock connectionLock = new ReentrantLock(true);
+    private final ExecutorService ioExecutor = Executors.newFixedThreadPool(IO_THREADS, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "client-io-" + counter.getAndIncrement());
+            t.setDaemon(true); // Never keeps the JavaFX application alive on exit
+            return t;
+        }
+    });
+
+    private volatile User currentUser; // Store logged-in user info
+    // Kept for the lifetime of the session so a dropped connection can be logged in again without the user.
+    // The token comes from the server at login; the password itself is never kept.
+    private String sessionUsername;
+    private String sessionToken;
+    // LOGOUT sent in the background; the next login waits for it so it cannot reach the server after the LOGIN
+    private volatile Future<?> pendingLogout;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
 
@@ -45,32 +107,83 @@ public class ClientService {
         return instance;
     }
 
+    // Shared executor for all background client work (JavaFX Tasks from the controllers). Use this instead of
+    // starting raw threads so the number of threads stays bounded no matter how fast the user clicks.
+    public void execute(Runnable task) {
+        ioExecutor.execute(task);
+    }
+
     public boolean connect() {
+        connectionLock.lock();
         try {
             if (socket == null || socket.isClosed()) {
-                socket = new Socket(hostname, port);
+                socket = new Socket();
+                socket.connect(new InetSocketAddress(hostname, port), CONNECT_TIMEOUT_MS);
+                socket.setSoTimeout(READ_TIMEOUT_MS);
                 // Use UTF-8 for consistency
                 writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
                 reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                codec = new FrameCodec();
+                negotiateCompression();
                 System.out.println("GUI Client: Connected to server.");
             }
             return true;
         } catch (UnknownHostException e) {
             System.err.println("GUI Client: Server not found: " + e.getMessage());
+            closeQuietly();
             return false;
         } catch (IOException e) {
             System.err.println("GUI Client: I/O error when connecting: " + e.getMessage());
+            closeQuietly();
             return false;
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    // Drops a broken connection without the TERMINATE_CONNECTION handshake. Caller holds connectionLock.
+    private void closeQuietly() {
+        try {
+            if (socket != null) socket.close();
+        } catch (IOException ignored) {
+            // Already broken
+        }
+        socket = null;
+        writer = null;
+        reader = null;
+    }
+
+    // Offers DEFLATE for large responses. Servers that do not know HELLO answer with an error and
+    // the connection simply stays uncompressed.
+    private void negotiateCompression() throws IOException {
+        writer.println(RequestType.HELLO.name() + "::" + FrameCodec.DEFLATE);
+        String reply = reader.readLine();
+        if (reply == null) {
+            throw new IOException("Server closed connection during handshake.");
+        }
+        String[] parts = reply.split("::", -1);
+        if ("SUCCESS".equals(parts[0]) && parts.length >= 4 && "HELLO".equals(parts[1]) && FrameCodec.DEFLATE.equals(parts[2])) {
+            try {
+                codec.enableCompression(Integer.parseInt(parts[3]));
+            } catch (NumberFormatException e) {
+                codec.enableCompression(FrameCodec.DEFAULT_THRESHOLD);
+            }
+            System.out.println("GUI Client: Response compression enabled (" + FrameCodec.DEFLATE + ", threshold " + codec.getThreshold() + ").");
+        } else {
+            System.out.println("GUI Client: Server did not accept compression, using plain frames. Reply: " + reply);
         }
     }
 
     public void disconnect() {
+        connectionLock.lock();
         try {
             if (writer != null) writer.println(RequestType.TERMINATE_CONNECTION.name());
             if (socket != null && !socket.isClosed()) socket.close();
             if (writer != null) writer.close();
             if (reader != null) reader.close();
             currentUser = null; // Clear user on disconnect
+            sessionUsername = null;
+            sessionToken = null;
             System.out.println("GUI Client: Disconnected from server.");
         } catch (IOException e) {
             System.err.println("GUI Client: Error disconnecting: " + e.getMessage());
@@ -78,33 +191,174 @@ public class ClientService {
             socket = null;
             writer = null;
             reader = null;
+            connectionLock.unlock();
         }
     }
 
+    /**
+     * Sends one request and returns its response. While a user is logged in, a lost connection is handled here
+     * instead of failing the caller: the connection is re-established with backoff, the session is logged in
+     * again, and read-only requests that were in flight are sent again (see RequestType.isReadOnly). Requests
+     * that change data are never re-sent, since the server may already have applied them. After a read timeout
+     * only keyed borrows and returns are re-sent; re-sending a slow read would just run it again next to itself.
+     */
     private String sendRequestGetResponse(String request) throws IOException {
-        if (!connect()) { // Ensure connection
-            throw new IOException("Failed to connect to the server.");
+        return sendPipelined(Collections.singletonList(request)).get(0);
+    }
+
+    /**
+     * Writes all requests before reading any response, then returns the responses in request order. The server
+     * answers one line at a time in the order it reads them, so the requests cost one round trip instead of one
+     * each. Replay after a lost connection follows sendRequestGetResponse and covers the whole pipeline, so it
+     * only happens when every request in it is replayable.
+     */
+    private List<String> sendPipelined(List<String> requests) throws IOException {
+        connectionLock.lock(); // Held for the whole exchange so no other caller can read these responses
+        try {
+            boolean replayable = requests.stream().allMatch(ClientService::isReplayable);
+            boolean keyed = requests.stream().allMatch(ClientService::hasIdempotencyKey);
+            for (int replays = 0; ; replays++) {
+                ensureConnected();
+                try {
+                    return exchangeAll(requests);
+                } catch (IOException e) {
+                    if (!replayable || replays >= MAX_REPLAYS || sessionUsername == null
+                            || (e instanceof SocketTimeoutException && !keyed)) {
+                        throw e;
+                    }
+                    System.err.println("GUI Client: Connection lost (" + e.getMessage() + "), replaying: "
+                            + requests.stream().map(ProtocolLog::redact).collect(Collectors.joining(", ")));
+                }
+            }
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    // Writes one request line and reads its response line. Caller holds connectionLock and has connected.
+    private String exchange(String request) throws IOException {
+        return exchangeAll(Collections.singletonList(request)).get(0);
+    }
+
+    // Writes every request line, then reads one response line per request. Caller holds connectionLock and has
+    // connected.
+    private List<String> exchangeAll(List<String> requests) throws IOException {
+        for (String request : requests) {
+            System.out.println("GUI Client Sending: " + ProtocolLog.redact(request));
+            writer.println(request);
+        }
+        List<String> responses = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            String response;
+            try {
+                response = codec.decode(reader.readLine());
+            } catch (IOException e) {
+                closeQuietly(); // The stream position is unknown now; the next request reconnects
+                throw e;
+            }
+            System.out.println("GUI Client Received: " + ProtocolLog.redact(response));
+            if (response == null) {
+                // This can happen if the server closes the connection abruptly
+                // or if the readLine() is interrupted before any data.
+                closeQuietly(); // Keeps the session so it can be re-established
+                throw new IOException("Server closed connection or no response received.");
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    // Makes sure there is a connection; while logged in, also retries with backoff and logs the session back in.
+    private void ensureConnected() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+        if (sessionUsername == null) {
+            if (!connect()) { // Not logged in: one attempt, as before
+                throw new IOException("Failed to connect to the server.");
+            }
+            return;
+        }
+        for (int attempt = 0; attempt < RECONNECT_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                sleepBeforeReconnect(attempt);
+            }
+            if (connect() && restoreSession()) {
+                return;
+            }
+        }
+        throw new IOException("Lost connection to the server and could not reconnect.");
+    }
+
+    private void sleepBeforeReconnect(int attempt) throws InterruptedIOException {
+        long ceiling = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_BASE_DELAY_MS << (attempt - 1));
+        // Jitter spreads out the reconnects of all terminals that lost the same server
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        System.out.println("GUI Client: Reconnecting in " + delay + " ms (attempt " + (attempt + 1) + " of " + RECONNECT_ATTEMPTS + ").");
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // e.g. the Task was cancelled
+            throw new InterruptedIOException("Interrupted while waiting to reconnect.");
+        }
+    }
+
+    // Logs the cached session in on a fresh connection. Returns false if the connection dropped again.
+    private boolean restoreSession() throws IOException {
+        String response;
+        try {
+            response = exchange(RequestType.RESUME_SESSION.name() + "::" + sessionToken);
+        } catch (IOException e) {
+            return false;
         }
-        System.out.println("GUI Client Sending: " + request);
-        writer.println(request);
-        String response = reader.readLine();
-        System.out.println("GUI Client Received: " + response);
-        if (response == null) {
-            // This can happen if the server closes the connection abruptly
-            // or if the readLine() is interrupted before any data.
-            disconnect(); // Try to clean up client side resources
-            throw new IOException("Server closed connection or no response received.");
+        if (!response.startsWith("SUCCESS::LOGIN_SUCCESSFUL")) {
+            // e.g. the account was frozen or the session expired meanwhile; retrying won't help
+            sessionUsername = null;
+            sessionToken = null;
+            throw new IOException("Session could not be restored, please log in again.");
         }
-        return response;
+        System.out.println("GUI Client: Session restored for " + sessionUsername + ".");
+        return true;
+    }
+
+    // Read-only requests (and batches made only of them) can safely be sent again after a lost connection, and so
+    // can borrows and returns that carry an idempotency key: the server answers a repeat with the original result.
+    private static boolean isReplayable(String request) {
+        String[] parts = request.split("::", -1);
+        try {
+            RequestType type = RequestType.valueOf(parts[0]);
+            if (type == RequestType.BORROW_BOOK || type == RequestType.RETURN_BOOK) {
+                return hasIdempotencyKey(request);
+            }
+            if (type != RequestType.BATCH) {
+                return type.isReadOnly();
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String subRequest = new String(Base64.getDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+                if (!RequestType.valueOf(subRequest.split("::", 2)[0]).isReadOnly()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasIdempotencyKey(String request) {
+        String[] parts = request.split("::", -1);
+        return parts.length == 3
+                && (RequestType.BORROW_BOOK.name().equals(parts[0]) || RequestType.RETURN_BOOK.name().equals(parts[0]));
     }
 
     // --- User Operations ---
     public User login(String username, String password) throws IOException, AuthenticationException {
+        awaitPendingLogout();
         String request = RequestType.LOGIN.name() + "::" + username + "::" + password;
         String response = sendRequestGetResponse(request); // Can throw IOException
         String[] parts = response.split("::", -1);
 
-        // Based on your client log: SUCCESS::LOGIN_SUCCESSFUL::NORMAL_USER::user_6d013e6b::Welcome rachel
+        // Based on your client log: SUCCESS::LOGIN_SUCCESSFUL::NORMAL_USER::user_6d013e6b::Welcome rachel::sessionToken
         if ("SUCCESS".equals(parts[0]) && "LOGIN_SUCCESSFUL".equals(parts[1]) && parts.length >= 5) {
             Role role = Role.valueOf(parts[2].toUpperCase()); // parts[2] is ROLE ("NORMAL_USER")
             String userId = parts[3];                         // parts[3] is USER_ID ("user_6d013e6b")
@@ -113,13 +367,22 @@ public class ClientService {
             this.currentUser = (role == Role.ADMIN) ?
                     new org.example.model.Admin(userId, username, null) : // password hash not needed client-side
                     new org.example.model.NormalUser(userId, username, null);
+            String token = parts.length >= 6 ? parts[5] : "";
+            connectionLock.lock();
+            try {
+                // Without a token (older server, or it could not store one) a dropped connection ends the session
+                sessionUsername = token.isEmpty() ? null : username;
+                sessionToken = token.isEmpty() ? null : token;
+            } finally {
+                connectionLock.unlock();
+            }
             return this.currentUser;
         } else if ("FAILURE".equals(parts[0])) {
             throw new AuthenticationException(parts.length > 2 ? parts[2] : "Login failed due to server indicating failure.");
         } else {
             // Log the unexpected response for debugging
-            System.err.println("GUI Client: Unexpected login response format: " + response);
-            throw new IOException("Unexpected server response during login: " + response);
+            System.err.println("GUI Client: Unexpected login response format: " + ProtocolLog.redact(response));
+            throw new IOException("Unexpected server response during login: " + ProtocolLog.redact(response));
         }
     }
 
@@ -136,19 +399,58 @@ public class ClientService {
         }
     }
 
+    // For the UI thread: the LOGOUT round trip runs on the shared executor, but a login started afterwards still
+    // waits for it (see login()).
+    public void logoutInBackground() {
+        pendingLogout = ioExecutor.submit(this::logout);
+    }
+
+    private void awaitPendingLogout() throws InterruptedIOException {
+        Future<?> logout = pendingLogout;
+        if (logout == null) {
+            return;
+        }
+        try {
+            logout.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the previous logout.");
+        } catch (ExecutionException e) {
+            // logout() handles its own errors; the client side is logged out either way
+        }
+    }
+
     public void logout() {
-        if (currentUser != null) {
-            try {
-                // Send logout request, but don't critically depend on its response for client-side logout
-                if (socket != null && !socket.isClosed() && writer != null) {
-                    sendRequestGetResponse(RequestType.LOGOUT.name()); // Can throw IOException, catch it.
+        // Held throughout so no other request slips in between the check and the LOGOUT request. A LOGIN does not
+        // queue up here in the first place: login() waits for logoutInBackground() to finish.
+        connectionLock.lock();
+        try {
+            if (currentUser != null) {
+                try {
+                    // Send logout request, but don't critically depend on its response for client-side logout
+                    if (isConnected()) {
+                        sendRequestGetResponse(RequestType.LOGOUT.name()); // Can throw IOException, catch it.
+                    }
+                } catch (IOException e) {
+                    System.err.println("GUI Client: Error during server logout request: " + e.getMessage());
+                    // Proceed with client-side logout anyway
+                } finally {
+                    currentUser = null; // Always clear current user on client side
+                    sessionUsername = null;
+                    sessionToken = null;
                 }
-            } catch (IOException e) {
-                System.err.println("GUI Client: Error during server logout request: " + e.getMessage());
-                // Proceed with client-side logout anyway
-            } finally {
-                currentUser = null; // Always clear current user on client side
             }
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    public boolean isConnected() {
+        connectionLock.lock();
+        try {
+            return socket != null && !socket.isClosed() && writer != null;
+        } finally {
+            connectionLock.unlock();
         }
     }
 
@@ -181,10 +483,22 @@ public class ClientService {
         throw new IOException("Failed to get book details: " + (parts.length > 2 ? parts[2] : response));
     }
 
+    // Resolves many book IDs with a single GET_BOOKS_BY_IDS request. IDs the server does not know are absent.
+    public Map<String, Book> getBooksByIds(Collection<String> bookIds) throws IOException {
+        Map<String, Book> books = new LinkedHashMap<>();
+        if (bookIds.isEmpty()) return books;
+        String request = RequestType.GET_BOOKS_BY_IDS.name() + "::" + String.join(";", bookIds);
+        String response = sendRequestGetResponse(request);
+        for (Book book : parseBookListResponse(response, "BOOK_LIST_BY_IDS")) {
+            books.put(book.getBookId(), book);
+        }
+        return books;
+    }
 
     public String borrowBook(String bookId) throws IOException, OperationException {
         if (currentUser == null) throw new OperationException("User not logged in.");
-        String request = RequestType.BORROW_BOOK.name() + "::" + bookId;
+        // The key makes the request safe to re-send after a lost connection or timeout (see isReplayable)
+        String request = RequestType.BORROW_BOOK.name() + "::" + bookId + "::" + UUID.randomUUID();
         String response = sendRequestGetResponse(request);
         String[] parts = response.split("::", -1);
         if ("SUCCESS".equals(parts[0]) && "BORROW_SUCCESSFUL".equals(parts[1])) {
@@ -197,7 +511,7 @@ public class ClientService {
 
     public String returnBook(String bookId) throws IOException, OperationException {
         if (currentUser == null) throw new OperationException("User not logged in.");
-        String request = RequestType.RETURN_BOOK.name() + "::" + bookId;
+        String request = RequestType.RETURN_BOOK.name() + "::" + bookId + "::" + UUID.randomUUID();
         String response = sendRequestGetResponse(request);
         String[] parts = response.split("::", -1);
         if ("SUCCESS".equals(parts[0]) && "RETURN_SUCCESSFUL".equals(parts[1])) {
@@ -268,30 +582,7 @@ public class ClientService {
 
     public List<User> getAllUsers() throws IOException {
         String response = sendRequestGetResponse(RequestType.GET_ALL_USERS.name());
-        String[] parts = response.split("::", -1);
-        List<User> users = new ArrayList<>();
-        if ("SUCCESS".equals(parts[0]) && "USER_LIST".equals(parts[1])) {
-            if (parts.length > 2 && !parts[2].isEmpty() && !"NO_USERS_FOUND".equals(parts[2])) {
-                String[] userStrings = parts[2].split(";");
-                for (String userStr : userStrings) {
-                    String[] fields = userStr.split("\\|");
-                    if (fields.length == 4) {
-                        String userId = fields[0];
-                        String username = fields[1];
-                        Role role = Role.valueOf(fields[2].toUpperCase());
-                        boolean isActive = "ACTIVE".equalsIgnoreCase(fields[3]);
-                        User user = (role == Role.ADMIN) ?
-                                new org.example.model.Admin(userId, username, null, isActive) :
-                                new org.example.model.NormalUser(userId, username, null, isActive);
-                        users.add(user);
-                    }
-                }
-            }
-            return users;
-        } else if ("SUCCESS".equals(parts[0]) && "NO_USERS_FOUND".equals(parts[1])) {
-            return Collections.emptyList();
-        }
-        throw new IOException("Failed to get users: " + response);
+        return parseUserListResponse(response);
     }
 
     public String updateUserStatus(String userId, boolean isActive) throws IOException, OperationException {
@@ -311,30 +602,172 @@ public class ClientService {
         return parseBorrowRecordListResponse(response, "ALL_BORROWING_RECORDS");
     }
 
+    // One page of the admin record list, newest first. cursor is null for the first page, otherwise the
+    // previous page's getNextCursor().
+    public BorrowRecordPage getBorrowRecordsPage(BorrowRecordQuery query, String cursor, int limit) throws IOException {
+        return parseBorrowRecordPageResponse(sendRequestGetResponse(borrowRecordsPageRequest(query, cursor, limit)));
+    }
+
+    private String borrowRecordsPageRequest(BorrowRecordQuery query, String cursor, int limit) {
+        String status = query.isOverdueOnly() ? "OVERDUE" : query.isActiveOnly() ? "ACTIVE" : "ALL";
+        return String.join("::", RequestType.VIEW_ALL_BORROWING_RECORDS.name(),
+                String.valueOf(limit),
+                cursor != null ? cursor : "",
+                query.getUserId() != null ? query.getUserId() : "",
+                query.getBookId() != null ? query.getBookId() : "",
+                query.getFromDate() != null ? query.getFromDate().format(DATE_FORMATTER) : "",
+                query.getToDate() != null ? query.getToDate().format(DATE_FORMATTER) : "",
+                status);
+    }
+
+    // GET_OVERDUE_LOANS: one page of every overdue loan in the system. cursor is null for the first page.
+    public OverdueLoanPage getOverdueLoans(String cursor, int limit) throws IOException {
+        String response = sendRequestGetResponse(RequestType.GET_OVERDUE_LOANS.name() + "::" + limit + "::" + (cursor != null ? cursor : ""));
+        String[] parts = response.split("::", -1);
+        if ("SUCCESS".equals(parts[0]) && parts.length == 6 && "OVERDUE_LOANS_PAGE".equals(parts[1])) {
+            return new OverdueLoanPage(parseBorrowRecordList(parts[5]), parts[2].isEmpty() ? null : parts[2],
+                    Integer.parseInt(parts[3]), LocalDate.parse(parts[4]));
+        }
+        System.err.println("GUI Client: Failed to parse overdue loan page. Raw response: " + response);
+        throw new IOException("Failed to load overdue loans. Response: " + response);
+    }
+
+    /**
+     * EXPORT_BORROW_RECORDS: streams the borrow history (optionally only records borrowed between from and to) into
+     * target as gzip-compressed CSV. The response arrives as many DATA lines that go straight to disk, so memory use
+     * does not depend on the size of the export. Returns the number of records exported. Never replayed: a dropped
+     * connection fails the export and the partial file is removed.
+     */
+    public long exportBorrowRecords(LocalDate from, LocalDate to, Path target) throws IOException {
+        String request = RequestType.EXPORT_BORROW_RECORDS.name();
+        if (from != null || to != null) {
+            request += "::" + (from != null ? from.format(DATE_FORMATTER) : "") + "::" + (to != null ? to.format(DATE_FORMATTER) : "");
+        }
+        Path parent = target.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".part");
+        connectionLock.lock(); // The whole multi-line response belongs to this call
+        try {
+            ensureConnected();
+            String first = exchange(request);
+            if (!first.startsWith("SUCCESS::EXPORT_BEGIN::")) {
+                throw new IOException("Export failed: " + first);
+            }
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                while (true) {
+                    String line;
+                    try {
+                        line = reader.readLine();
+                    } catch (IOException e) {
+                        closeQuietly();
+                        throw e;
+                    }
+                    if (line == null) {
+                        closeQuietly();
+                        throw new IOException("Server closed connection during export.");
+                    }
+                    if (line.startsWith(ExportStream.DATA_PREFIX)) { // Empty while the server is still scanning
+                        out.write(Base64.getDecoder().decode(line.substring(ExportStream.DATA_PREFIX.length())));
+                    } else if (line.startsWith("SUCCESS::EXPORT_END::")) {
+                        System.out.println("GUI Client Received: " + line);
+                        rows = Long.parseLong(line.split("::", -1)[2]);
+                        break;
+                    } else {
+                        throw new IOException("Export failed: " + codec.decode(line));
+                    }
+                }
+            } catch (IllegalArgumentException e) { // Bad Base64 or row count: the stream is out of sync
+                closeQuietly();
+                throw new IOException("Malformed export data: " + e.getMessage());
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            return rows;
+        } finally {
+            connectionLock.unlock();
+            Files.deleteIfExists(temp); // Only still there if the export did not complete
+        }
+    }
+
     public List<String> getPopularBooks(int limit) throws IOException {
         String request = RequestType.GET_POPULAR_BOOKS.name() + "::" + limit;
         String response = sendRequestGetResponse(request);
-        String[] parts = response.split("::", -1);
-        if ("SUCCESS".equals(parts[0]) && parts.length > 2 && "POPULAR_BOOKS_LIST".equals(parts[1])) {
-            if (parts[2].isEmpty() || "NO_POPULAR_BOOKS_DATA".equals(parts[2])) return Collections.emptyList();
-            return Arrays.asList(parts[2].split(";"));
-        } else if ("SUCCESS".equals(parts[0]) && "NO_POPULAR_BOOKS_DATA".equals(parts[1])) {
-            return Collections.emptyList();
-        }
-        throw new IOException("Failed to get popular books: " + response);
+        return parseRankedBookListResponse(response, "POPULAR_BOOKS_LIST", "NO_POPULAR_BOOKS_DATA", "popular books");
     }
 
     public List<String> getTrendingBooks(int limit, int daysPeriod) throws IOException {
         String request = RequestType.GET_TRENDING_BOOKS.name() + "::" + limit + "::" + daysPeriod;
         String response = sendRequestGetResponse(request);
+        return parseRankedBookListResponse(response, "TRENDING_BOOKS_LIST", "NO_TRENDING_BOOKS_DATA", "trending books");
+    }
+
+    // --- Batched Operations ---
+
+    // Sends several requests in one BATCH frame and returns their responses in the same order.
+    public List<String> executeBatch(List<String> requests) throws IOException {
+        return parseBatchResponse(sendRequestGetResponse(batchRequest(requests)), requests.size());
+    }
+
+    private static String batchRequest(List<String> requests) {
+        return RequestType.BATCH.name() + "::" + requests.stream()
+                .map(r -> Base64.getEncoder().encodeToString(r.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining("::"));
+    }
+
+    private static List<String> parseBatchResponse(String response, int expected) throws IOException {
         String[] parts = response.split("::", -1);
-        if ("SUCCESS".equals(parts[0]) && parts.length > 2 && "TRENDING_BOOKS_LIST".equals(parts[1])) {
-            if (parts[2].isEmpty() || "NO_TRENDING_BOOKS_DATA".equals(parts[2])) return Collections.emptyList();
-            return Arrays.asList(parts[2].split(";"));
-        } else if ("SUCCESS".equals(parts[0]) && "NO_TRENDING_BOOKS_DATA".equals(parts[1])) {
-            return Collections.emptyList();
+        if ("SUCCESS".equals(parts[0]) && parts.length > 2 && "BATCH_RESULTS".equals(parts[1])) {
+            List<String> results = new ArrayList<>();
+            for (String encoded : parts[2].split(";", -1)) {
+                results.add(new String(Base64.getDecoder().decode(encoded), StandardCharsets.UTF_8));
+            }
+            if (results.size() != expected) {
+                throw new IOException("Batch returned " + results.size() + " results for " + expected + " requests.");
+            }
+            return results;
+        }
+        throw new IOException("Batch request failed: " + response);
+    }
+
+    // GET_USER_DASHBOARD: the server reads the user's borrow records once and derives every section from them.
+    public UserDashboardData loadUserDashboard(int recommendationLimit) throws IOException {
+        if (currentUser == null) {
+            return new UserDashboardData(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
         }
-        throw new IOException("Failed to get trending books: " + response);
+        String request = RequestType.GET_USER_DASHBOARD.name() + "::" + recommendationLimit;
+        String response = sendRequestGetResponse(request);
+        String[] parts = response.split("::", -1);
+        // SUCCESS::USER_DASHBOARD::records::overdue::recommendations::books
+        if ("SUCCESS".equals(parts[0]) && parts.length == 6 && "USER_DASHBOARD".equals(parts[1])) {
+            return new UserDashboardData(
+                    parseBookList(parts[5]),
+                    parseBorrowRecordList(parts[2]),
+                    parseBorrowRecordList(parts[3]),
+                    parseBookList(parts[4])
+            );
+        }
+        System.err.println("GUI Client: Failed to load user dashboard. Raw response: " + response);
+        throw new IOException("Failed to load dashboard. Response: " + response);
+    }
+
+    public AdminDashboardData loadAdminDashboard(int popularLimit, int trendingLimit, int trendingDays,
+                                                 BorrowRecordQuery recordQuery, int recordPageSize) throws IOException {
+        // The full book and user lists stream on their own (the server keeps them out of BATCH) and the small,
+        // bounded sections share a BATCH. All three are pipelined, so opening the dashboard waits one round trip.
+        List<String> sections = Arrays.asList(
+                borrowRecordsPageRequest(recordQuery, null, recordPageSize),
+                RequestType.GET_POPULAR_BOOKS.name() + "::" + popularLimit,
+                RequestType.GET_TRENDING_BOOKS.name() + "::" + trendingLimit + "::" + trendingDays
+        );
+        List<String> responses = sendPipelined(Arrays.asList(
+                RequestType.GET_ALL_BOOKS.name(), RequestType.GET_ALL_USERS.name(), batchRequest(sections)));
+        List<String> results = parseBatchResponse(responses.get(2), sections.size());
+        return new AdminDashboardData(
+                parseBookListResponse(responses.get(0)),
+                parseUserListResponse(responses.get(1)),
+                parseBorrowRecordPageResponse(results.get(0)),
+                parseRankedBookListResponse(results.get(1), "POPULAR_BOOKS_LIST", "NO_POPULAR_BOOKS_DATA", "popular books"),
+                parseRankedBookListResponse(results.get(2), "TRENDING_BOOKS_LIST", "NO_TRENDING_BOOKS_DATA", "trending books")
+        );
     }
 
 
@@ -354,23 +787,34 @@ public class ClientService {
         return null;
     }
 
+    // A streamed list whose source failed after rows were sent ends with StreamingResponse.ERROR_MARKER
+    private static void rejectIncompleteList(String payload) throws IOException {
+        if (payload.equals(StreamingResponse.ERROR_MARKER) || payload.endsWith(";" + StreamingResponse.ERROR_MARKER)) {
+            throw new IOException("The server failed while sending the list; please try again.");
+        }
+    }
+
+    // Parses a ';'-separated list of book rows (one response payload section)
+    private List<Book> parseBookList(String payload) throws IOException {
+        if (payload.isEmpty()) return Collections.emptyList();
+        rejectIncompleteList(payload);
+        List<Book> books = new ArrayList<>();
+        for (String bookStr : payload.split(";")) {
+            Book book = parseBook(bookStr);
+            if (book != null) books.add(book);
+        }
+        return books;
+    }
+
     private List<Book> parseBookListResponse(String response) throws IOException {
         return parseBookListResponse(response, "BOOK_LIST");
     }
 
     private List<Book> parseBookListResponse(String response, String expectedType) throws IOException {
         String[] parts = response.split("::", -1);
-        List<Book> books = new ArrayList<>();
         if ("SUCCESS".equals(parts[0]) && parts.length > 1) { // Check length > 1 for parts[1]
             if (expectedType.equals(parts[1]) && parts.length > 2) { // Check length > 2 for parts[2] (payload)
-                if (parts[2].isEmpty()) return Collections.emptyList();
-
-                String[] bookStrings = parts[2].split(";");
-                for (String bookStr : bookStrings) {
-                    Book book = parseBook(bookStr);
-                    if (book != null) books.add(book);
-                }
-                return books;
+                return parseBookList(parts[2]);
             } else if (parts[1].startsWith("NO_") || parts[1].endsWith("_FOUND") || parts[1].endsWith("_AVAILABLE") || parts[1].endsWith("_CATEGORIES")) {
                 // Handles cases like NO_BOOKS_FOUND, NO_RECOMMENDATIONS_AVAILABLE etc. directly
                 return Collections.emptyList();
@@ -380,6 +824,46 @@ public class ClientService {
         throw new IOException("Failed to parse book list. Response: " + response);
     }
 
+    private List<User> parseUserListResponse(String response) throws IOException {
+        String[] parts = response.split("::", -1);
+        List<User> users = new ArrayList<>();
+        if ("SUCCESS".equals(parts[0]) && "USER_LIST".equals(parts[1])) {
+            if (parts.length > 2 && !parts[2].isEmpty() && !"NO_USERS_FOUND".equals(parts[2])) {
+                rejectIncompleteList(parts[2]);
+                String[] userStrings = parts[2].split(";");
+                for (String userStr : userStrings) {
+                    String[] fields = userStr.split("\\|");
+                    if (fields.length == 4) {
+                        String userId = fields[0];
+                        String username = fields[1];
+                        Role role = Role.valueOf(fields[2].toUpperCase());
+                        boolean isActive = "ACTIVE".equalsIgnoreCase(fields[3]);
+                        User user = (role == Role.ADMIN) ?
+                                new org.example.model.Admin(userId, username, null, isActive) :
+                                new org.example.model.NormalUser(userId, username, null, isActive);
+                        users.add(user);
+                    }
+                }
+            }
+            return users;
+        } else if ("SUCCESS".equals(parts[0]) && "NO_USERS_FOUND".equals(parts[1])) {
+            return Collections.emptyList();
+        }
+        throw new IOException("Failed to get users: " + response);
+    }
+
+    // Popular/trending lists are passed through as raw rows: bookId|title|author|category|qty|totalQty|borrowCount
+    private List<String> parseRankedBookListResponse(String response, String listType, String noDataType, String description) throws IOException {
+        String[] parts = response.split("::", -1);
+        if ("SUCCESS".equals(parts[0]) && parts.length > 2 && listType.equals(parts[1])) {
+            if (parts[2].isEmpty() || noDataType.equals(parts[2])) return Collections.emptyList();
+            return Arrays.asList(parts[2].split(";"));
+        } else if ("SUCCESS".equals(parts[0]) && parts.length > 1 && noDataType.equals(parts[1])) {
+            return Collections.emptyList();
+        }
+        throw new IOException("Failed to get " + description + ": " + response);
+    }
+
     private BorrowRecord parseBorrowRecord(String recordData) {
         String[] fields = recordData.split("\\|");
         if (fields.length >= 6) {
@@ -401,19 +885,22 @@ public class ClientService {
         return null;
     }
 
+    private List<BorrowRecord> parseBorrowRecordList(String payload) throws IOException {
+        if (payload.isEmpty()) return Collections.emptyList();
+        rejectIncompleteList(payload);
+        List<BorrowRecord> records = new ArrayList<>();
+        for (String recordStr : payload.split(";")) {
+            BorrowRecord record = parseBorrowRecord(recordStr);
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
     private List<BorrowRecord> parseBorrowRecordListResponse(String response, String expectedType) throws IOException {
         String[] parts = response.split("::", -1);
-        List<BorrowRecord> records = new ArrayList<>();
         if ("SUCCESS".equals(parts[0]) && parts.length > 1) { // Check length > 1 for parts[1]
             if (expectedType.equals(parts[1]) && parts.length > 2) { // Check length > 2 for parts[2] (payload)
-                if (parts[2].isEmpty()) return Collections.emptyList();
-
-                String[] recordStrings = parts[2].split(";");
-                for (String recordStr : recordStrings) {
-                    BorrowRecord record = parseBorrowRecord(recordStr);
-                    if (record != null) records.add(record);
-                }
-                return records;
+                return parseBorrowRecordList(parts[2]);
             } else if (parts[1].startsWith("NO_")) { // Handles NO_BORROWING_RECORDS_FOUND etc.
                 return Collections.emptyList();
             }
@@ -422,6 +909,16 @@ public class ClientService {
         throw new IOException("Failed to parse borrow record list. Response: " + response);
     }
 
+    // SUCCESS::BORROWING_RECORDS_PAGE::nextCursor::rows
+    private BorrowRecordPage parseBorrowRecordPageResponse(String response) throws IOException {
+        String[] parts = response.split("::", -1);
+        if ("SUCCESS".equals(parts[0]) && parts.length == 4 && "BORROWING_RECORDS_PAGE".equals(parts[1])) {
+            return new BorrowRecordPage(parseBorrowRecordList(parts[3]), parts[2].isEmpty() ? null : parts[2]);
+        }
+        System.err.println("GUI Client: Failed to parse borrow record page. Raw response: " + response);
+        throw new IOException("Failed to load borrow records. Response: " + response);
+    }
+
     // Custom Exceptions
     public static class AuthenticationException extends Exception {
         public AuthenticationException(String message) { super(message); }
@@ -4,6 +4,7 @@ import org.example.model.Role;
 import org.example.model.User;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -11,11 +12,29 @@ import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
 
 public class MainApp extends Application {
+    private static final String LOGIN_VIEW = "/org/example/client/view/LoginView.fxml";
+    private static final String USER_DASHBOARD_VIEW = "/org/example/client/view/UserDashboardView.fxml";
+    private static final String ADMIN_DASHBOARD_VIEW = "/org/example/client/view/AdminDashboardView.fxml";
 
     private Stage primaryStage;
     private ClientService clientService;
+    private Scene scene; // One scene for the main window; switching views swaps its root
+    // FXML is parsed once per view; the controllers reset their session state on logout
+    private final Map<String, LoadedView> views = new HashMap<>();
+
+    private static class LoadedView {
+        final Parent root;
+        final Object controller;
+
+        LoadedView(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
 
     @Override
     public void start(Stage primaryStage) {
@@ -23,18 +42,13 @@ public class MainApp extends Application {
         this.primaryStage.setTitle("Library Management System");
         this.clientService = ClientService.getInstance();
 
-        // 尝试启动时连接服务器，但如果失败则由登录页面处理重连逻辑
-        if (!clientService.connect()) {
-            org.example.util.AlertUtil.showError(
-                    "Connection Failed",
-                    "Server Connection Error",
-                    "Could not connect to the server. Please ensure the server is running."
-            );
-            // 可以在这里提示用户重试或退出
-        }
-
         showLoginView();
 
+        // 在后台连接服务器，窗口不会因为服务器无响应而卡住；如果失败则由登录页面处理重连逻辑
+        connectInBackground();
+        // The dashboards are parsed while the user is still typing their credentials
+        Platform.runLater(this::preloadViews);
+
         // 应用关闭时断开客户端并退出
         primaryStage.setOnCloseRequest(event -> {
             clientService.disconnect();
@@ -43,22 +57,84 @@ public class MainApp extends Application {
         });
     }
 
-    public void showLoginView() {
+    private void connectInBackground() {
+        org.example.client.controller.LoginController loginController = loginController();
+        if (loginController != null) {
+            loginController.showConnecting();
+        }
+        Task<Boolean> connectTask = new Task<>() {
+            @Override
+            protected Boolean call() {
+                return clientService.connect();
+            }
+        };
+        connectTask.setOnSucceeded(event -> {
+            boolean connected = connectTask.getValue();
+            if (loginController != null) {
+                loginController.showConnectionStatus(connected);
+            }
+            if (!connected) {
+                org.example.util.AlertUtil.showError(
+                        "Connection Failed",
+                        "Server Connection Error",
+                        "Could not connect to the server. Please ensure the server is running."
+                );
+            }
+        });
+        clientService.execute(connectTask);
+    }
+
+    private void preloadViews() {
         try {
-            // 将相对路径改为 classpath 绝对路径：/org/example/client/view/LoginView.fxml
-            URL fxmlUrl = getClass().getResource("/org/example/client/view/LoginView.fxml");
+            loadView(USER_DASHBOARD_VIEW);
+            loadView(ADMIN_DASHBOARD_VIEW);
+        } catch (IOException e) {
+            // Not fatal here; showDashboard reports it if the view really can't be loaded
+            System.err.println("Could not preload dashboard views: " + e.getMessage());
+        }
+    }
+
+    private LoadedView loadView(String fxmlPath) throws IOException {
+        LoadedView view = views.get(fxmlPath);
+        if (view == null) {
+            URL fxmlUrl = getClass().getResource(fxmlPath);
             if (fxmlUrl == null) {
-                throw new IOException("无法找到 /org/example/client/view/LoginView.fxml，请检查 FXML 是否存在");
+                throw new IOException("无法找到 " + fxmlPath + "，请检查 FXML 是否存在");
             }
-
             FXMLLoader loader = new FXMLLoader(fxmlUrl);
             Parent root = loader.load();
+            view = new LoadedView(root, loader.getController());
+            views.put(fxmlPath, view);
+        }
+        return view;
+    }
+
+    private org.example.client.controller.LoginController loginController() {
+        LoadedView view = views.get(LOGIN_VIEW);
+        return view == null ? null : (org.example.client.controller.LoginController) view.controller;
+    }
+
+    private void showRoot(Parent root) {
+        if (scene == null) {
+            scene = new Scene(root);
+            primaryStage.setScene(scene);
+        } else {
+            scene.setRoot(root);
+            primaryStage.sizeToScene();
+        }
+        primaryStage.show();
+    }
 
-            org.example.client.controller.LoginController controller = loader.getController();
+    public void showLoginView() {
+        try {
+            LoadedView view = loadView(LOGIN_VIEW);
+            org.example.client.controller.LoginController controller =
+                    (org.example.client.controller.LoginController) view.controller;
             controller.setMainApp(this);
+            controller.reset();
 
-            primaryStage.setScene(new Scene(root));
-            primaryStage.show();
+            primaryStage.setTitle("Library Management System");
+            showRoot(view.root);
         } catch (IOException e) {
             e.printStackTrace();
             org.example.util.AlertUtil.showError(
@@ -106,33 +182,23 @@ public class MainApp extends Application {
     public void showDashboard(User user) {
         try {
             // 根据角色选择对应的 FXML 绝对路径
-            String fxmlPath = (user.getRole() == Role.ADMIN)
-                    ? "/org/example/client/view/AdminDashboardView.fxml"
-                    : "/org/example/client/view/UserDashboardView.fxml";
-
-            URL fxmlUrl = getClass().getResource(fxmlPath);
-            if (fxmlUrl == null) {
-                throw new IOException("无法找到 " + fxmlPath + "，请检查 FXML 是否存在");
-            }
-
-            FXMLLoader loader = new FXMLLoader(fxmlUrl);
-            Parent root = loader.load();
+            String fxmlPath = (user.getRole() == Role.ADMIN) ? ADMIN_DASHBOARD_VIEW : USER_DASHBOARD_VIEW;
+            LoadedView view = loadView(fxmlPath);
 
             if (user.getRole() == Role.ADMIN) {
                 org.example.client.controller.AdminDashboardController controller =
-                        loader.getController();
+                        (org.example.client.controller.AdminDashboardController) view.controller;
                 controller.setMainApp(this);
             } else {
                 org.example.client.controller.UserDashboardController controller =
-                        loader.getController();
+                        (org.example.client.controller.UserDashboardController) view.controller;
                 controller.setMainApp(this);
             }
 
-            primaryStage.setScene(new Scene(root));
+            showRoot(view.root);
             primaryStage.setTitle(
                     "Library Dashboard - " + user.getUsername() + " (" + user.getRole() + ")"
             );
-            primaryStage.show();
         } catch (IOException e) {
             e.printStackTrace();
             org.example.util.AlertUtil.showError(
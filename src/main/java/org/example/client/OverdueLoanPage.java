@@ -0,0 +1,26 @@
+package org.example.client;
+
+import org.example.model.BorrowRecord;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One page of the admin's overdue loan report, most overdue first.
+public class OverdueLoanPage extends BorrowRecordPage {
+    private final int total;        // Overdue loans system-wide, not just on this page
+    private final LocalDate asOf;   // When the server last brought its overdue set up to date
+
+    public OverdueLoanPage(List<BorrowRecord> records, String nextCursor, int total, LocalDate asOf) {
+        super(records, nextCursor);
+        this.total = total;
+        this.asOf = asOf;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+}
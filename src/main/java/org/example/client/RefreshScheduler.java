@@ -0,0 +1,120 @@
+package org.example.client;
+
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * Debounces and coalesces dashboard loads. Every load has a key (e.g. "books"); requests for the same key within
+ * the debounce delay collapse into one server call, and only the result of the newest request is ever applied.
+ * What happens when a request arrives while a load for the key is already in flight depends on the mode:
+ * superseding loads (searches) cancel the running one, coalescing loads (refreshes) let it finish and then run
+ * exactly once more. Only used from the JavaFX Application Thread.
+ */
+public class RefreshScheduler {
+    public static final Duration REFRESH_DELAY = Duration.millis(150);
+    public static final Duration TYPING_DELAY = Duration.millis(300);
+
+    private final ClientService clientService;
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    private static class Slot {
+        final PauseTransition debounce = new PauseTransition();
+        Task<?> running;
+        Runnable latestLoad;   // Starts a load for the newest request
+        boolean supersede;
+        boolean rerunWhenDone; // A coalesced request arrived while a load was in flight
+    }
+
+    public RefreshScheduler(ClientService clientService) {
+        this.clientService = clientService;
+    }
+
+    // Coalescing load: an in-flight load is allowed to finish, followed by one more run if requests came in meanwhile.
+    public <T> void refresh(String key, Callable<T> loader, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        schedule(key, REFRESH_DELAY, false, loader, onSuccess, onFailure);
+    }
+
+    // Superseding load: an in-flight load for the same key is cancelled and its result discarded.
+    public <T> void replace(String key, Duration delay, Callable<T> loader, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        schedule(key, delay, true, loader, onSuccess, onFailure);
+    }
+
+    public <T> void schedule(String key, Duration delay, boolean supersede,
+                             Callable<T> loader, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+        slot.latestLoad = () -> start(slot, loader, onSuccess, onFailure);
+        slot.supersede = supersede;
+        slot.debounce.setDuration(delay);
+        slot.debounce.setOnFinished(e -> fire(slot));
+        slot.debounce.playFromStart();
+    }
+
+    // Stops pending timers and abandons in-flight loads, e.g. when the dashboard is closed on logout.
+    public void cancelAll() {
+        slots.values().forEach(RefreshScheduler::cancel);
+    }
+
+    // Drops a pending or in-flight load for one key; its result, if any, is never applied.
+    public void cancel(String key) {
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            cancel(slot);
+        }
+    }
+
+    private static void cancel(Slot slot) {
+        slot.debounce.stop();
+        if (slot.running != null) {
+            slot.running.cancel();
+            slot.running = null;
+        }
+        slot.rerunWhenDone = false;
+    }
+
+    private void fire(Slot slot) {
+        if (slot.running != null) {
+            if (!slot.supersede) {
+                slot.rerunWhenDone = true;
+                return;
+            }
+            slot.running.cancel(); // Still queued: never runs. Already running: its result is ignored.
+            slot.running = null;
+        }
+        slot.latestLoad.run();
+    }
+
+    private <T> void start(Slot slot, Callable<T> loader, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        Task<T> task = new Task<>() {
+            @Override protected T call() throws Exception {
+                return loader.call();
+            }
+        };
+        slot.running = task;
+        task.setOnSucceeded(e -> {
+            if (slot.running != task) return; // Superseded or cancelled
+            if (finish(slot)) onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (slot.running != task) return;
+            if (finish(slot)) onFailure.accept(task.getException());
+        });
+        clientService.execute(task);
+    }
+
+    // Returns true if the finished load is the newest one and its outcome should be applied.
+    private boolean finish(Slot slot) {
+        slot.running = null;
+        if (slot.rerunWhenDone) {
+            slot.rerunWhenDone = false;
+            slot.latestLoad.run(); // A newer result is on its way; skip this one
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.client;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TableView;
+import org.example.model.Book;
+import org.example.model.BorrowRecord;
+import org.example.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Applies a freshly loaded list to a table's items as a keyed diff instead of setAll(): rows that disappeared are
+ * removed, new rows are inserted and rows whose content changed are replaced in place. Unchanged rows keep their
+ * existing objects, so the table only redraws what actually changed and the selection survives a refresh.
+ * Model equals() compares IDs only, so every table also passes a content check. Only used from the JavaFX
+ * Application Thread.
+ */
+public class TableDiff {
+
+    private TableDiff() {
+    }
+
+    public static int applyBooks(TableView<Book> table, List<Book> fresh) {
+        return apply(table, fresh, Book::getBookId, TableDiff::sameBook);
+    }
+
+    public static int applyBorrowRecords(TableView<BorrowRecord> table, List<BorrowRecord> fresh) {
+        return apply(table, fresh, BorrowRecord::getRecordId, TableDiff::sameBorrowRecord);
+    }
+
+    public static int applyUsers(TableView<User> table, List<User> fresh) {
+        return apply(table, fresh, User::getUserId, TableDiff::sameUser);
+    }
+
+    // For tables that show a filtered/sorted view of a source list: the diff goes into the source list.
+    public static int applyBooks(ObservableList<Book> items, List<Book> fresh) {
+        return apply(items, fresh, Book::getBookId, TableDiff::sameBook);
+    }
+
+    /**
+     * Brings the table's items in line with fresh. If the user has sorted the table, existing rows stay where they
+     * are, new rows are appended and the table's sort is re-applied; otherwise the rows end up in the order of fresh.
+     * Returns the number of rows inserted, removed or replaced.
+     */
+    public static <T, K> int apply(TableView<T> table, List<T> fresh, Function<T, K> keyOf, BiPredicate<T, T> sameContent) {
+        ObservableList<T> items = table.getItems();
+        if (table.getSortOrder().isEmpty() || items.isEmpty() || fresh.isEmpty()) {
+            return apply(items, fresh, keyOf, sameContent);
+        }
+        Map<K, T> freshByKey = byKey(fresh, keyOf);
+        int changes = removeMissing(items, freshByKey, keyOf);
+        changes += updateInPlace(items, fresh, keyOf, sameContent, freshByKey);
+        if (changes > 0) {
+            table.sort();
+        }
+        return changes;
+    }
+
+    // Brings items in line with fresh, in the order of fresh. Returns the number of rows inserted, removed or replaced.
+    public static <T, K> int apply(ObservableList<T> items, List<T> fresh, Function<T, K> keyOf, BiPredicate<T, T> sameContent) {
+        if (items.isEmpty() || fresh.isEmpty()) {
+            int changes = items.size() + fresh.size();
+            items.setAll(fresh); // Nothing to keep
+            return changes;
+        }
+        int changes = removeMissing(items, byKey(fresh, keyOf), keyOf);
+        if (!keepsOrder(items, fresh, keyOf)) {
+            // The server reordered existing rows; a merge would turn into a remove/insert per row anyway
+            items.setAll(fresh);
+            return fresh.size();
+        }
+        return changes + merge(items, fresh, keyOf, sameContent);
+    }
+
+    private static <T, K> Map<K, T> byKey(List<T> fresh, Function<T, K> keyOf) {
+        Map<K, T> freshByKey = new HashMap<>(fresh.size() * 2);
+        for (T item : fresh) {
+            freshByKey.put(keyOf.apply(item), item);
+        }
+        return freshByKey;
+    }
+
+    // Removes each run of adjacent missing rows with one remove(from, to), back to front so earlier indices stay
+    // valid: one change event (and one shift of the rows behind it) per run instead of per row.
+    private static <T, K> int removeMissing(ObservableList<T> items, Map<K, T> freshByKey, Function<T, K> keyOf) {
+        int removed = 0;
+        int end = items.size();
+        while (end > 0) {
+            if (freshByKey.containsKey(keyOf.apply(items.get(end - 1)))) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !freshByKey.containsKey(keyOf.apply(items.get(start - 1)))) {
+                start--;
+            }
+            items.remove(start, end);
+            removed += end - start;
+            end = start;
+        }
+        return removed;
+    }
+
+    // Both lists are in the same relative order: walk them together, batching runs of inserted rows.
+    private static <T, K> int merge(ObservableList<T> items, List<T> fresh, Function<T, K> keyOf, BiPredicate<T, T> sameContent) {
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (j < fresh.size()) {
+            T current = i < items.size() ? items.get(i) : null;
+            if (current != null && Objects.equals(keyOf.apply(current), keyOf.apply(fresh.get(j)))) {
+                if (!sameContent.test(current, fresh.get(j))) {
+                    items.set(i, fresh.get(j));
+                    changes++;
+                }
+                i++;
+                j++;
+                continue;
+            }
+            // fresh[j] is new: collect it and every following new row up to the next existing one
+            int runEnd = j + 1;
+            K nextExisting = current != null ? keyOf.apply(current) : null;
+            while (runEnd < fresh.size() && !Objects.equals(keyOf.apply(fresh.get(runEnd)), nextExisting)) {
+                runEnd++;
+            }
+            items.addAll(i, fresh.subList(j, runEnd));
+            changes += runEnd - j;
+            i += runEnd - j;
+            j = runEnd;
+        }
+        return changes;
+    }
+
+    // Sorted table: keep positions, replace changed rows and append new ones (the caller re-sorts).
+    private static <T, K> int updateInPlace(ObservableList<T> items, List<T> fresh, Function<T, K> keyOf,
+                                            BiPredicate<T, T> sameContent, Map<K, T> freshByKey) {
+        int changes = 0;
+        Set<K> present = new HashSet<>(items.size() * 2);
+        for (int i = 0; i < items.size(); i++) {
+            K key = keyOf.apply(items.get(i));
+            present.add(key);
+            T replacement = freshByKey.get(key);
+            if (!sameContent.test(items.get(i), replacement)) {
+                items.set(i, replacement);
+                changes++;
+            }
+        }
+        List<T> added = new ArrayList<>();
+        for (T item : fresh) {
+            if (!present.contains(keyOf.apply(item))) {
+                added.add(item);
+            }
+        }
+        items.addAll(added);
+        return changes + added.size();
+    }
+
+    // True if the rows still in items appear in fresh in the same relative order.
+    private static <T, K> boolean keepsOrder(List<T> items, List<T> fresh, Function<T, K> keyOf) {
+        Set<K> present = new HashSet<>(items.size() * 2);
+        for (T item : items) {
+            present.add(keyOf.apply(item));
+        }
+        int i = 0;
+        for (T item : fresh) {
+            K key = keyOf.apply(item);
+            if (!present.contains(key)) {
+                continue;
+            }
+            if (i >= items.size() || !Objects.equals(keyOf.apply(items.get(i)), key)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    private static boolean sameBook(Book a, Book b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && Objects.equals(a.getAuthor(), b.getAuthor())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && a.getQuantity() == b.getQuantity()
+                && a.getTotalQuantity() == b.getTotalQuantity();
+    }
+
+    private static boolean sameBorrowRecord(BorrowRecord a, BorrowRecord b) {
+        return Objects.equals(a.getUserId(), b.getUserId())
+                && Objects.equals(a.getBookId(), b.getBookId())
+                && Objects.equals(a.getBorrowDate(), b.getBorrowDate())
+                && Objects.equals(a.getDueDate(), b.getDueDate())
+                && Objects.equals(a.getReturnDate(), b.getReturnDate());
+    }
+
+    private static boolean sameUser(User a, User b) {
+        return Objects.equals(a.getUsername(), b.getUsername())
+                && a.getRole() == b.getRole()
+                && a.isActive() == b.isActive();
+    }
+}
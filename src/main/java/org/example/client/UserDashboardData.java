@@ -0,0 +1,38 @@
+package org.example.client;
+
+import org.example.model.Book;
+import org.example.model.BorrowRecord;
+
+import java.util.List;
+
+// Everything the user dashboard shows on open, fetched in a single round trip.
+public class UserDashboardData {
+    private final List<Book> books;
+    private final List<BorrowRecord> myBorrowingRecords;
+    private final List<BorrowRecord> overdueRecords;
+    private final List<Book> recommendations;
+
+    public UserDashboardData(List<Book> books, List<BorrowRecord> myBorrowingRecords,
+                             List<BorrowRecord> overdueRecords, List<Book> recommendations) {
+        this.books = books;
+        this.myBorrowingRecords = myBorrowingRecords;
+        this.overdueRecords = overdueRecords;
+        this.recommendations = recommendations;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    public List<BorrowRecord> getMyBorrowingRecords() {
+        return myBorrowingRecords;
+    }
+
+    public List<BorrowRecord> getOverdueRecords() {
+        return overdueRecords;
+    }
+
+    public List<Book> getRecommendations() {
+        return recommendations;
+    }
+}
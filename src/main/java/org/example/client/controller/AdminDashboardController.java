@@ -1,10 +1,17 @@
 package org.example.client.controller;
 
+import org.example.client.AdminDashboardData;
+import org.example.client.BookTitleCache;
+import org.example.client.BorrowRecordPage;
 import org.example.client.MainApp;
+import org.example.client.OverdueLoanPage;
+import org.example.client.RefreshScheduler;
+import org.example.client.TableDiff;
 import org.example.client.ClientService;
 import org.example.util.AlertUtil;
 import org.example.model.Book;
 import org.example.model.BorrowRecord;
+import org.example.model.BorrowRecordQuery;
 import org.example.model.Role;
 import org.example.model.User;
 
@@ -14,12 +21,18 @@ import javafx.collections.ObservableList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets; // <<< FIX 1: Import Insets
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.GridPane;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
 // Removed javafx.util.Pair as it wasn't used
 
+import java.io.File;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors; // <<< FIX 2: Import Collectors
@@ -51,11 +64,39 @@ public class AdminDashboardController {
     @FXML private TableColumn<BorrowRecord, Integer> adminBorrowRecIdCol;
     @FXML private TableColumn<BorrowRecord, String> adminBorrowUserIdCol;
     @FXML private TableColumn<BorrowRecord, String> adminBorrowBookIdCol;
+    @FXML private TableColumn<BorrowRecord, String> adminBorrowBookTitleCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> adminBorrowDateCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> adminDueDateCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> adminReturnDateCol;
     @FXML private TableColumn<BorrowRecord, String> adminBorrowStatusCol;
     private ObservableList<BorrowRecord> allBorrowsData = FXCollections.observableArrayList();
+    @FXML private TextField recordsUserIdField;
+    @FXML private TextField recordsBookIdField;
+    @FXML private DatePicker recordsFromDatePicker; // Also the range for exports
+    @FXML private DatePicker recordsToDatePicker;
+    @FXML private ChoiceBox<String> recordsStatusChoice;
+    @FXML private Label recordsCountLabel;
+    @FXML private Button exportBorrowRecordsButton;
+    // The record list is loaded a page at a time (newest first) as the admin scrolls down
+    private static final int RECORDS_PAGE_SIZE = 200;
+    private BorrowRecordQuery recordsQuery = BorrowRecordQuery.ALL;
+    private String recordsCursor;         // Where the next page starts; null when everything is loaded
+    private boolean loadingMoreRecords = false;
+    private final BookTitleCache bookTitles = new BookTitleCache(ClientService.getInstance());
+
+    // Overdue Loans Tab
+    @FXML private TableView<BorrowRecord> overdueLoansTableView;
+    @FXML private TableColumn<BorrowRecord, Integer> overdueRecIdCol;
+    @FXML private TableColumn<BorrowRecord, String> overdueUserIdCol;
+    @FXML private TableColumn<BorrowRecord, String> overdueBookIdCol;
+    @FXML private TableColumn<BorrowRecord, String> overdueBookTitleCol;
+    @FXML private TableColumn<BorrowRecord, LocalDate> overdueBorrowDateCol;
+    @FXML private TableColumn<BorrowRecord, LocalDate> overdueDueDateCol;
+    @FXML private TableColumn<BorrowRecord, Long> overdueDaysCol;
+    @FXML private Label overdueCountLabel;
+    private ObservableList<BorrowRecord> overdueLoansData = FXCollections.observableArrayList();
+    private String overdueCursor;  // Same paging scheme as the record list
+    private boolean loadingMoreOverdue = false;
 
     // Statistics Tab
     @FXML private Spinner<Integer> popularBooksLimitSpinner;
@@ -69,6 +110,7 @@ public class AdminDashboardController {
 
     private MainApp mainApp;
     private ClientService clientService;
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler(ClientService.getInstance());
 
     public void setMainApp(MainApp mainApp) {
         this.mainApp = mainApp;
@@ -103,6 +145,9 @@ public class AdminDashboardController {
         adminBorrowRecIdCol.setCellValueFactory(new PropertyValueFactory<>("recordId"));
         adminBorrowUserIdCol.setCellValueFactory(new PropertyValueFactory<>("userId"));
         adminBorrowBookIdCol.setCellValueFactory(new PropertyValueFactory<>("bookId"));
+        adminBorrowBookTitleCol.setCellValueFactory(cellData ->
+                javafx.beans.binding.Bindings.createStringBinding(() -> bookTitles.titleOf(cellData.getValue().getBookId()))
+        );
         adminBorrowDateCol.setCellValueFactory(new PropertyValueFactory<>("borrowDate"));
         adminDueDateCol.setCellValueFactory(new PropertyValueFactory<>("dueDate"));
         adminReturnDateCol.setCellValueFactory(new PropertyValueFactory<>("returnDate"));
@@ -112,28 +157,68 @@ public class AdminDashboardController {
             return javafx.beans.binding.Bindings.createStringBinding(() -> record.isOverdue() ? "OVERDUE" : "Borrowed");
         });
         allBorrowsTableView.setItems(allBorrowsData);
+        recordsStatusChoice.getItems().setAll("All", "Active", "Overdue");
+        recordsStatusChoice.setValue("All");
+        recordsUserIdField.textProperty().addListener((obs, old, text) -> applyRecordFilters(RefreshScheduler.TYPING_DELAY));
+        recordsBookIdField.textProperty().addListener((obs, old, text) -> applyRecordFilters(RefreshScheduler.TYPING_DELAY));
+        recordsFromDatePicker.valueProperty().addListener((obs, old, date) -> applyRecordFilters(RefreshScheduler.REFRESH_DELAY));
+        recordsToDatePicker.valueProperty().addListener((obs, old, date) -> applyRecordFilters(RefreshScheduler.REFRESH_DELAY));
+        recordsStatusChoice.valueProperty().addListener((obs, old, status) -> applyRecordFilters(RefreshScheduler.REFRESH_DELAY));
+        // The scroll bar only exists once the table has a skin
+        allBorrowsTableView.skinProperty().addListener((obs, old, skin) -> loadMoreNearBottom(allBorrowsTableView, this::loadMoreRecords));
+
+        // Overdue Loans Table
+        overdueRecIdCol.setCellValueFactory(new PropertyValueFactory<>("recordId"));
+        overdueUserIdCol.setCellValueFactory(new PropertyValueFactory<>("userId"));
+        overdueBookIdCol.setCellValueFactory(new PropertyValueFactory<>("bookId"));
+        overdueBookTitleCol.setCellValueFactory(cellData ->
+                javafx.beans.binding.Bindings.createStringBinding(() -> bookTitles.titleOf(cellData.getValue().getBookId()))
+        );
+        overdueBorrowDateCol.setCellValueFactory(new PropertyValueFactory<>("borrowDate"));
+        overdueDueDateCol.setCellValueFactory(new PropertyValueFactory<>("dueDate"));
+        overdueDaysCol.setCellValueFactory(cellData -> javafx.beans.binding.Bindings.createObjectBinding(
+                () -> ChronoUnit.DAYS.between(cellData.getValue().getDueDate(), LocalDate.now())));
+        overdueLoansTableView.setItems(overdueLoansData);
+        overdueLoansTableView.skinProperty().addListener((obs, old, skin) -> loadMoreNearBottom(overdueLoansTableView, this::loadMoreOverdueLoans));
 
         // Statistics
         popularBooksListView.setItems(popularBooksDisplayData);
         trendingBooksListView.setItems(trendingBooksDisplayData);
     }
 
+    // One background task fills every tab, including the statistics lists.
     private void loadInitialAdminData() {
-        handleRefreshAllBooks();
-        handleRefreshAllUsers();
-        handleRefreshAllBorrowRecords();
+        int popularLimit = popularBooksLimitSpinner.getValue();
+        int trendingLimit = trendingBooksLimitSpinner.getValue();
+        int trendingDays = trendingBooksDaysSpinner.getValue();
+        Task<AdminDashboardData> task = new Task<>() {
+            @Override protected AdminDashboardData call() throws Exception {
+                return clientService.loadAdminDashboard(popularLimit, trendingLimit, trendingDays, recordsQuery, RECORDS_PAGE_SIZE);
+            }
+        };
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            AdminDashboardData data = task.getValue();
+            bookTitles.rememberAll(data.getBooks());
+            TableDiff.applyBooks(allBooksTableView, data.getBooks());
+            TableDiff.applyUsers(allUsersTableView, data.getUsers());
+            showFirstRecordsPage(data.getBorrowRecords());
+            showPopularBooks(data.getPopularBooks());
+            showTrendingBooks(data.getTrendingBooks());
+        }));
+        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Dashboard Failed", task.getException().getMessage())));
+        clientService.execute(task);
     }
 
     @FXML
     private void handleRefreshAllBooks() {
-        Task<List<Book>> task = new Task<>() {
-            @Override protected List<Book> call() throws Exception {
-                return clientService.getAllBooks();
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> allBooksData.setAll(task.getValue())));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Books Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        // Repeated clicks and back-to-back edits collapse into one reload (see RefreshScheduler)
+        refreshScheduler.refresh("books",
+                clientService::getAllBooks,
+                books -> {
+                    bookTitles.rememberAll(books);
+                    TableDiff.applyBooks(allBooksTableView, books);
+                },
+                ex -> AlertUtil.showError("Load Books Failed", ex.getMessage()));
     }
 
     @FXML
@@ -150,7 +235,7 @@ public class AdminDashboardController {
                 handleRefreshAllBooks();
             }));
             task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Add Book Failed", task.getException().getMessage())));
-            new Thread(task).start();
+            clientService.execute(task);
         });
     }
 
@@ -173,7 +258,7 @@ public class AdminDashboardController {
                 handleRefreshAllBooks();
             }));
             task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Update Book Failed", task.getException().getMessage())));
-            new Thread(task).start();
+            clientService.execute(task);
         });
     }
 
@@ -195,7 +280,7 @@ public class AdminDashboardController {
                 handleRefreshAllBooks();
             }));
             task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Delete Book Failed", task.getException().getMessage())));
-            new Thread(task).start();
+            clientService.execute(task);
         }
     }
 
@@ -274,14 +359,10 @@ public class AdminDashboardController {
 
     @FXML
     private void handleRefreshAllUsers() {
-        Task<List<User>> task = new Task<>() {
-            @Override protected List<User> call() throws Exception {
-                return clientService.getAllUsers();
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> allUsersData.setAll(task.getValue())));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Users Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        refreshScheduler.refresh("users",
+                clientService::getAllUsers,
+                users -> TableDiff.applyUsers(allUsersTableView, users),
+                ex -> AlertUtil.showError("Load Users Failed", ex.getMessage()));
     }
 
     @FXML
@@ -311,20 +392,167 @@ public class AdminDashboardController {
                 handleRefreshAllUsers();
             }));
             task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Update User Status Failed", task.getException().getMessage())));
-            new Thread(task).start();
+            clientService.execute(task);
         }
     }
 
+    // Reloads the first page with the current filters; pages loaded by scrolling are dropped.
     @FXML
     private void handleRefreshAllBorrowRecords() {
-        Task<List<BorrowRecord>> task = new Task<>() {
-            @Override protected List<BorrowRecord> call() throws Exception {
-                return clientService.getAllBorrowingRecords();
+        reloadRecords(RefreshScheduler.REFRESH_DELAY, false);
+    }
+
+    private void applyRecordFilters(Duration delay) {
+        String status = recordsStatusChoice.getValue();
+        recordsQuery = new BorrowRecordQuery(recordsUserIdField.getText(), recordsBookIdField.getText(),
+                recordsFromDatePicker.getValue(), recordsToDatePicker.getValue(),
+                "Active".equals(status), "Overdue".equals(status));
+        reloadRecords(delay, true); // Results for the old filters are no longer wanted
+    }
+
+    private void reloadRecords(Duration delay, boolean supersede) {
+        BorrowRecordQuery query = recordsQuery;
+        refreshScheduler.schedule("records", delay, supersede,
+                () -> clientService.getBorrowRecordsPage(query, null, RECORDS_PAGE_SIZE),
+                this::showFirstRecordsPage,
+                ex -> AlertUtil.showError("Load Borrow Records Failed", ex.getMessage()));
+    }
+
+    private void showFirstRecordsPage(BorrowRecordPage page) {
+        refreshScheduler.cancel("moreRecords"); // Its cursor belongs to the list being replaced
+        loadingMoreRecords = false;
+        recordsCursor = page.getNextCursor();
+        TableDiff.applyBorrowRecords(allBorrowsTableView, page.getRecords());
+        bookTitles.resolve(page.getRecords(), allBorrowsTableView::refresh);
+        updateRecordsCount();
+    }
+
+    // Calls loadMore whenever the table is scrolled close to its last row. Only works once the table has a skin.
+    private void loadMoreNearBottom(TableView<?> table, Runnable loadMore) {
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+                ScrollBar bar = (ScrollBar) node;
+                bar.valueProperty().addListener((obs, old, value) -> {
+                    if (value.doubleValue() >= bar.getMax() * 0.9) {
+                        loadMore.run();
+                    }
+                });
+            }
+        }
+    }
+
+    // Fetches the page after the last loaded row, when the admin nears the bottom of the table.
+    private void loadMoreRecords() {
+        if (recordsCursor == null || loadingMoreRecords) {
+            return;
+        }
+        loadingMoreRecords = true;
+        BorrowRecordQuery query = recordsQuery;
+        String cursor = recordsCursor;
+        refreshScheduler.replace("moreRecords", Duration.ZERO,
+                () -> clientService.getBorrowRecordsPage(query, cursor, RECORDS_PAGE_SIZE),
+                page -> {
+                    loadingMoreRecords = false;
+                    recordsCursor = page.getNextCursor();
+                    allBorrowsData.addAll(page.getRecords());
+                    if (!allBorrowsTableView.getSortOrder().isEmpty()) {
+                        allBorrowsTableView.sort(); // Keep a column sort the admin picked
+                    }
+                    bookTitles.resolve(page.getRecords(), allBorrowsTableView::refresh);
+                    updateRecordsCount();
+                },
+                ex -> {
+                    loadingMoreRecords = false; // Scrolling again retries
+                    AlertUtil.showError("Load Borrow Records Failed", ex.getMessage());
+                });
+    }
+
+    private void updateRecordsCount() {
+        recordsCountLabel.setText(allBorrowsData.size() + " records" + (recordsCursor != null ? " loaded, scroll down for more" : ""));
+    }
+
+    // The overdue report is only fetched when the admin opens its tab.
+    @FXML
+    private void handleOverdueTabSelected(javafx.event.Event event) {
+        if (((Tab) event.getSource()).isSelected()) {
+            handleRefreshOverdueLoans();
+        }
+    }
+
+    @FXML
+    private void handleRefreshOverdueLoans() {
+        refreshScheduler.refresh("overdue",
+                () -> clientService.getOverdueLoans(null, RECORDS_PAGE_SIZE),
+                page -> {
+                    refreshScheduler.cancel("moreOverdue"); // Its cursor belongs to the list being replaced
+                    loadingMoreOverdue = false;
+                    TableDiff.applyBorrowRecords(overdueLoansTableView, page.getRecords());
+                    showOverduePage(page);
+                    bookTitles.resolve(page.getRecords(), overdueLoansTableView::refresh);
+                },
+                ex -> AlertUtil.showError("Load Overdue Loans Failed", ex.getMessage()));
+    }
+
+    private void loadMoreOverdueLoans() {
+        if (overdueCursor == null || loadingMoreOverdue) {
+            return;
+        }
+        loadingMoreOverdue = true;
+        String cursor = overdueCursor;
+        refreshScheduler.replace("moreOverdue", Duration.ZERO,
+                () -> clientService.getOverdueLoans(cursor, RECORDS_PAGE_SIZE),
+                page -> {
+                    loadingMoreOverdue = false;
+                    overdueLoansData.addAll(page.getRecords());
+                    if (!overdueLoansTableView.getSortOrder().isEmpty()) {
+                        overdueLoansTableView.sort();
+                    }
+                    showOverduePage(page);
+                    bookTitles.resolve(page.getRecords(), overdueLoansTableView::refresh);
+                },
+                ex -> {
+                    loadingMoreOverdue = false; // Scrolling again retries
+                    AlertUtil.showError("Load Overdue Loans Failed", ex.getMessage());
+                });
+    }
+
+    private void showOverduePage(OverdueLoanPage page) {
+        overdueCursor = page.getNextCursor();
+        overdueCountLabel.setText(page.getTotal() + " overdue loans as of " + page.getAsOf()
+                + (overdueCursor != null ? ", " + overdueLoansData.size() + " loaded, scroll down for more" : ""));
+    }
+
+    @FXML
+    private void handleExportBorrowRecords() {
+        LocalDate from = recordsFromDatePicker.getValue();
+        LocalDate to = recordsToDatePicker.getValue();
+        if (from != null && to != null && from.isAfter(to)) {
+            AlertUtil.showError("Invalid Date Range", "The start date is after the end date.");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Borrow Records");
+        chooser.setInitialFileName("borrow-records" + (from != null ? "-from-" + from : "") + (to != null ? "-to-" + to : "") + ".csv.gz");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Compressed CSV", "*.csv.gz"));
+        File file = chooser.showSaveDialog(allBorrowsTableView.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Task<Long> task = new Task<>() {
+            @Override protected Long call() throws Exception {
+                return clientService.exportBorrowRecords(from, to, file.toPath());
             }
         };
-        task.setOnSucceeded(e -> Platform.runLater(() -> allBorrowsData.setAll(task.getValue())));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Borrow Records Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        exportBorrowRecordsButton.setDisable(true); // Other requests wait for the export anyway; don't queue a second one
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            exportBorrowRecordsButton.setDisable(false);
+            AlertUtil.showInfo("Export Complete", task.getValue() + " borrow records written to " + file.getName() + ".");
+        }));
+        task.setOnFailed(e -> Platform.runLater(() -> {
+            exportBorrowRecordsButton.setDisable(false);
+            AlertUtil.showError("Export Failed", task.getException().getMessage());
+        }));
+        clientService.execute(task);
     }
 
     @FXML
@@ -335,27 +563,9 @@ public class AdminDashboardController {
                 return clientService.getPopularBooks(limit);
             }
         };
-        task.setOnSucceeded(e -> Platform.runLater(() -> {
-            List<String> data = task.getValue();
-            if (data.isEmpty()) {
-                popularBooksDisplayData.setAll("No popular books data available.");
-            } else {
-                popularBooksDisplayData.setAll(
-                        data.stream()
-                                .map(s -> {
-                                    String[] parts = s.split("\\|");
-                                    // Format: bookId|title|author|category|qty|totalQty|borrowCount
-                                    if (parts.length >= 7) { // Ensure enough parts
-                                        return String.format("'%s' by %s (Category: %s) - Borrows: %s", parts[1], parts[2], parts[3], parts[6]);
-                                    }
-                                    return "Invalid data: " + s;
-                                })
-                                .collect(Collectors.toList()) // <<< FIX 2: Changed from .toList()
-                );
-            }
-        }));
+        task.setOnSucceeded(e -> Platform.runLater(() -> showPopularBooks(task.getValue())));
         task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Popular Books Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        clientService.execute(task);
     }
 
     @FXML
@@ -367,32 +577,78 @@ public class AdminDashboardController {
                 return clientService.getTrendingBooks(limit, days);
             }
         };
-        task.setOnSucceeded(e -> Platform.runLater(() -> {
-            List<String> data = task.getValue();
-            if (data.isEmpty()) {
-                trendingBooksDisplayData.setAll("No trending books data available for the period.");
-            } else {
-                trendingBooksDisplayData.setAll(
-                        data.stream()
-                                .map(s -> {
-                                    String[] parts = s.split("\\|");
-                                    // Format: bookId|title|author|category|qty|totalQty|borrowCount
-                                    if (parts.length >= 7) { // Ensure enough parts
-                                        return String.format("'%s' by %s (Category: %s) - Borrows in period: %s", parts[1], parts[2], parts[3], parts[6]);
-                                    }
-                                    return "Invalid data: " + s;
-                                })
-                                .collect(Collectors.toList()) // <<< FIX 2: Changed from .toList()
-                );
-            }
-        }));
+        task.setOnSucceeded(e -> Platform.runLater(() -> showTrendingBooks(task.getValue())));
         task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Trending Books Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        clientService.execute(task);
+    }
+
+    private void showPopularBooks(List<String> data) {
+        if (data.isEmpty()) {
+            popularBooksDisplayData.setAll("No popular books data available.");
+        } else {
+            popularBooksDisplayData.setAll(
+                    data.stream()
+                            .map(s -> {
+                                String[] parts = s.split("\\|");
+                                // Format: bookId|title|author|category|qty|totalQty|borrowCount
+                                if (parts.length >= 7) { // Ensure enough parts
+                                    return String.format("'%s' by %s (Category: %s) - Borrows: %s", parts[1], parts[2], parts[3], parts[6]);
+                                }
+                                return "Invalid data: " + s;
+                            })
+                            .collect(Collectors.toList()) // <<< FIX 2: Changed from .toList()
+            );
+        }
+    }
+
+    private void showTrendingBooks(List<String> data) {
+        if (data.isEmpty()) {
+            trendingBooksDisplayData.setAll("No trending books data available for the period.");
+        } else {
+            trendingBooksDisplayData.setAll(
+                    data.stream()
+                            .map(s -> {
+                                String[] parts = s.split("\\|");
+                                // Format: bookId|title|author|category|qty|totalQty|borrowCount
+                                if (parts.length >= 7) { // Ensure enough parts
+                                    return String.format("'%s' by %s (Category: %s) - Borrows in period: %s", parts[1], parts[2], parts[3], parts[6]);
+                                }
+                                return "Invalid data: " + s;
+                            })
+                            .collect(Collectors.toList()) // <<< FIX 2: Changed from .toList()
+            );
+        }
     }
 
     @FXML
     private void handleLogoutAdmin() {
-        clientService.logout();
+        clearSession();
+        clientService.logoutInBackground(); // Don't block the UI on the LOGOUT round trip; the next login waits for it
         mainApp.showLoginView();
     }
+
+    // The view is cached and reused for the next login, so nothing from this session may stay on screen.
+    private void clearSession() {
+        refreshScheduler.cancelAll();
+        allBooksData.clear();
+        allUsersData.clear();
+        allBorrowsData.clear();
+        popularBooksDisplayData.clear();
+        trendingBooksDisplayData.clear();
+        recordsUserIdField.clear();
+        recordsBookIdField.clear();
+        recordsFromDatePicker.setValue(null);
+        recordsToDatePicker.setValue(null);
+        recordsStatusChoice.setValue("All");
+        refreshScheduler.cancelAll(); // Clearing the filters above scheduled a reload
+        recordsQuery = BorrowRecordQuery.ALL;
+        recordsCursor = null;
+        loadingMoreRecords = false;
+        recordsCountLabel.setText("");
+        overdueLoansData.clear();
+        overdueCursor = null;
+        loadingMoreOverdue = false;
+        overdueCountLabel.setText("");
+        welcomeLabelAdmin.setText("");
+    }
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ public class LoginController {
     @FXML private Button loginButton;
     @FXML private Button testConnectionButton;
     @FXML private Label statusLabel;
+    @FXML private Label connectionLabel;
 
     private MainApp mainApp;
     private ClientService clientService;
@@ -33,9 +34,33 @@ public class LoginController {
         statusLabel.setText("");
     }
 
+    // The view is reused after logout; start with empty credentials again.
+    public void reset() {
+        passwordField.clear();
+        statusLabel.setText("");
+        loginButton.setDisable(false);
+        testConnectionButton.setDisable(false);
+    }
+
+    public void showConnecting() {
+        connectionLabel.setText("Connecting to server...");
+        connectionLabel.setStyle("-fx-text-fill: gray;");
+    }
+
+    public void showConnectionStatus(boolean connected) {
+        if (connected) {
+            connectionLabel.setText("Connected to server");
+            connectionLabel.setStyle("-fx-text-fill: green;");
+        } else {
+            connectionLabel.setText("Not connected - use Test Connection to retry");
+            connectionLabel.setStyle("-fx-text-fill: red;");
+        }
+    }
+
     @FXML
     private void handleTestConnection() {
         statusLabel.setText("Testing connection...");
+        showConnecting();
         loginButton.setDisable(true);
         testConnectionButton.setDisable(true);
 
@@ -48,6 +73,7 @@ public class LoginController {
 
         connectTask.setOnSucceeded(event -> {
             boolean connected = connectTask.getValue();
+            showConnectionStatus(connected);
             if (connected) {
                 statusLabel.setText("Connection successful!");
                 statusLabel.setStyle("-fx-text-fill: green;");
@@ -60,13 +86,14 @@ public class LoginController {
             testConnectionButton.setDisable(false);
         });
         connectTask.setOnFailed(event -> {
+            showConnectionStatus(false);
             statusLabel.setText("Connection test error.");
             statusLabel.setStyle("-fx-text-fill: red;");
             AlertUtil.showError("Connection Error", "An error occurred while testing connection: " + connectTask.getException().getMessage());
             loginButton.setDisable(false);
             testConnectionButton.setDisable(false);
         });
-        new Thread(connectTask).start();
+        clientService.execute(connectTask);
     }
 
 
@@ -94,6 +121,7 @@ public class LoginController {
 
         loginTask.setOnSucceeded(event -> {
             User user = loginTask.getValue();
+            showConnectionStatus(true);
             if (user != null) {
                 mainApp.showDashboard(user);
             } else {
@@ -107,13 +135,14 @@ public class LoginController {
 
         loginTask.setOnFailed(event -> {
             Throwable ex = loginTask.getException();
+            showConnectionStatus(clientService.isConnected());
             statusLabel.setText("Login failed: " + ex.getMessage());
             statusLabel.setStyle("-fx-text-fill: red;");
             AlertUtil.showError("Login Failed", ex.getMessage());
             loginButton.setDisable(false);
         });
 
-        new Thread(loginTask).start();
+        clientService.execute(loginTask);
     }
 
     @FXML
@@ -81,7 +81,7 @@ public class RegistrationController {
             registerButton.setDisable(false);
         });
 
-        new Thread(registerTask).start();
+        clientService.execute(registerTask);
     }
 
     @FXML
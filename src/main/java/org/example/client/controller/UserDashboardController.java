@@ -1,23 +1,31 @@
 package org.example.client.controller;
 
+import org.example.client.BookTitleCache;
+import org.example.client.CatalogIndex;
+import org.example.client.CatalogSnapshotStore;
 import org.example.client.MainApp;
+import org.example.client.RefreshScheduler;
+import org.example.client.TableDiff;
 import org.example.client.ClientService;
+import org.example.client.UserDashboardData;
 import org.example.util.AlertUtil;
 import org.example.model.Book;
 import org.example.model.BorrowRecord;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 
-import java.io.IOException; // Import IOException
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class UserDashboardController {
@@ -35,6 +43,7 @@ public class UserDashboardController {
     @FXML private TableView<BorrowRecord> myBorrowsTableView;
     @FXML private TableColumn<BorrowRecord, Integer> borrowRecordIdCol;
     @FXML private TableColumn<BorrowRecord, String> borrowBookIdCol;
+    @FXML private TableColumn<BorrowRecord, String> borrowBookTitleCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> borrowDateCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> dueDateCol;
     @FXML private TableColumn<BorrowRecord, LocalDate> returnDateCol;
@@ -48,8 +57,13 @@ public class UserDashboardController {
     private MainApp mainApp;
     private ClientService clientService;
     private ObservableList<Book> booksData = FXCollections.observableArrayList();
+    private final FilteredList<Book> filteredBooks = new FilteredList<>(booksData); // What the books table shows
+    private CatalogIndex catalog = new CatalogIndex();
+    private CatalogSnapshotStore snapshotStore;
     private ObservableList<BorrowRecord> myBorrowsData = FXCollections.observableArrayList();
     private ObservableList<String> recommendationsData = FXCollections.observableArrayList();
+    private final BookTitleCache bookTitles = new BookTitleCache(ClientService.getInstance());
+    private final RefreshScheduler refreshScheduler = new RefreshScheduler(ClientService.getInstance());
 
 
     public void setMainApp(MainApp mainApp) {
@@ -57,10 +71,34 @@ public class UserDashboardController {
         this.clientService = ClientService.getInstance();
         if (clientService.getCurrentUser() != null) {
             welcomeLabel.setText("Welcome, " + clientService.getCurrentUser().getUsername() + "!");
+            snapshotStore = CatalogSnapshotStore.forUser(clientService.getCurrentUser().getUserId());
+            showSnapshot();
         }
         loadInitialData();
     }
 
+    // Shows what this user saw last time straight away; loadInitialData() then reconciles it with the server.
+    private void showSnapshot() {
+        CatalogSnapshotStore.Snapshot snapshot = snapshotStore.load();
+        if (snapshot == null) {
+            return;
+        }
+        bookTitles.rememberAll(snapshot.getBooks());
+        catalog.load(snapshot.getBooks(), snapshot.getSavedAt());
+        TableDiff.applyBooks(booksData, snapshot.getBooks());
+        TableDiff.applyBorrowRecords(myBorrowsTableView, snapshot.getBorrowRecords());
+        filterLocally();
+    }
+
+    private void saveSnapshot() {
+        if (snapshotStore == null || !catalog.isComplete()) {
+            return;
+        }
+        List<Book> books = catalog.getBooks();
+        List<BorrowRecord> records = new ArrayList<>(myBorrowsData);
+        clientService.execute(() -> snapshotStore.save(books, records));
+    }
+
     @FXML
     private void initialize() {
         // Book Table
@@ -69,7 +107,9 @@ public class UserDashboardController {
         bookAuthorCol.setCellValueFactory(new PropertyValueFactory<>("author"));
         bookCategoryCol.setCellValueFactory(new PropertyValueFactory<>("category"));
         bookAvailableCol.setCellValueFactory(new PropertyValueFactory<>("quantity"));
-        booksTableView.setItems(booksData);
+        SortedList<Book> sortedBooks = new SortedList<>(filteredBooks);
+        sortedBooks.comparatorProperty().bind(booksTableView.comparatorProperty());
+        booksTableView.setItems(sortedBooks);
 
         searchFieldComboBox.setItems(FXCollections.observableArrayList("Title", "Author", "Category"));
         searchFieldComboBox.setValue("Title");
@@ -77,6 +117,9 @@ public class UserDashboardController {
         // My Borrows Table
         borrowRecordIdCol.setCellValueFactory(new PropertyValueFactory<>("recordId"));
         borrowBookIdCol.setCellValueFactory(new PropertyValueFactory<>("bookId"));
+        borrowBookTitleCol.setCellValueFactory(cellData ->
+                javafx.beans.binding.Bindings.createStringBinding(() -> bookTitles.titleOf(cellData.getValue().getBookId()))
+        );
         borrowDateCol.setCellValueFactory(new PropertyValueFactory<>("borrowDate"));
         dueDateCol.setCellValueFactory(new PropertyValueFactory<>("dueDate"));
         returnDateCol.setCellValueFactory(new PropertyValueFactory<>("returnDate"));
@@ -90,42 +133,86 @@ public class UserDashboardController {
         recommendationsListView.setItems(recommendationsData);
         SpinnerValueFactory<Integer> valueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 10, 5);
         recommendationsCountSpinner.setValueFactory(valueFactory);
+        // Search as you type. Normally answered from the local catalog index; server fallbacks are debounced
+        searchTermField.textProperty().addListener((obs, oldText, newText) -> handleSearchBooks());
+        searchFieldComboBox.valueProperty().addListener((obs, oldField, newField) -> handleSearchBooks());
     }
 
+    // One GET_USER_DASHBOARD round trip fills every tab instead of four separate requests.
     private void loadInitialData() {
-        handleShowAllBooks();
-        handleRefreshMyBorrows();
-        checkOverdueBooks();
+        int limit = recommendationsCountSpinner.getValue();
+        Task<UserDashboardData> task = new Task<>() {
+            @Override protected UserDashboardData call() throws Exception {
+                return clientService.loadUserDashboard(limit);
+            }
+        };
+        task.setOnSucceeded(e -> Platform.runLater(() -> {
+            UserDashboardData data = task.getValue();
+            bookTitles.rememberAll(data.getBooks()); // The full catalog covers every borrowed book
+            catalog.load(data.getBooks());
+            TableDiff.applyBooks(booksData, data.getBooks());
+            filterLocally();
+            TableDiff.applyBorrowRecords(myBorrowsTableView, data.getMyBorrowingRecords());
+            saveSnapshot();
+            showRecommendations(data.getRecommendations());
+            showOverdueBooks(data.getOverdueRecords());
+        }));
+        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Dashboard Failed", task.getException().getMessage())));
+        clientService.execute(task);
     }
 
     @FXML
     private void handleShowAllBooks() {
-        Task<List<Book>> task = new Task<>() {
-            @Override protected List<Book> call() throws Exception {
-                return clientService.getAllBooks();
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> booksData.setAll(task.getValue())));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Books Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        searchTermField.clear();
+        reloadCatalog();
     }
 
+    /**
+     * Searches the locally cached catalog when it is complete and recent (no round trip, results on every keystroke).
+     * Otherwise the server is searched as before and the catalog is reloaded in the background, so the following
+     * keystrokes can be answered locally again.
+     */
     @FXML
     private void handleSearchBooks() {
         String field = searchFieldComboBox.getValue().toLowerCase();
         String term = searchTermField.getText();
-        if (term.isEmpty()) {
-            handleShowAllBooks();
+        if (term.isEmpty() || catalog.isFresh()) {
+            filterLocally();
+            if (!catalog.isFresh()) {
+                reloadCatalog();
+            }
             return;
         }
-        Task<List<Book>> task = new Task<>() {
-            @Override protected List<Book> call() throws Exception {
-                return clientService.searchBooks(field, term);
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> booksData.setAll(task.getValue())));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Search Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        refreshScheduler.replace("search", RefreshScheduler.TYPING_DELAY,
+                () -> clientService.searchBooks(field, term),
+                found -> {
+                    catalog.update(found);
+                    TableDiff.applyBooks(booksData, catalog.getBooks());
+                    Set<String> foundIds = found.stream().map(Book::getBookId).collect(Collectors.toSet());
+                    filteredBooks.setPredicate(book -> foundIds.contains(book.getBookId()));
+                },
+                ex -> AlertUtil.showError("Search Failed", ex.getMessage()));
+        reloadCatalog();
+    }
+
+    private void reloadCatalog() {
+        refreshScheduler.refresh("catalog",
+                clientService::getAllBooks,
+                books -> {
+                    bookTitles.rememberAll(books);
+                    catalog.load(books);
+                    TableDiff.applyBooks(booksData, books);
+                    filterLocally();
+                    saveSnapshot();
+                },
+                ex -> AlertUtil.showError("Load Books Failed", ex.getMessage()));
+    }
+
+    // Applies the current search box to the cached catalog; a pending server search is no longer needed.
+    private void filterLocally() {
+        refreshScheduler.cancel("search");
+        String field = searchFieldComboBox.getValue().toLowerCase();
+        filteredBooks.setPredicate(catalog.matcher(field, searchTermField.getText()));
     }
 
     @FXML
@@ -147,12 +234,12 @@ public class UserDashboardController {
         };
         task.setOnSucceeded(e -> Platform.runLater(() -> {
             AlertUtil.showInfo("Borrow Success", task.getValue());
+            catalog.invalidate(); // Quantities changed; don't answer searches from the old copy
             handleShowAllBooks();
-            handleRefreshMyBorrows();
-            checkOverdueBooks();
+            handleRefreshMyBorrows(); // Also re-checks overdue books
         }));
         task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Borrow Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        clientService.execute(task);
     }
 
     @FXML
@@ -174,27 +261,25 @@ public class UserDashboardController {
         };
         task.setOnSucceeded(e -> Platform.runLater(() -> {
             AlertUtil.showInfo("Return Success", task.getValue());
+            catalog.invalidate(); // Quantities changed; don't answer searches from the old copy
             handleShowAllBooks();
-            handleRefreshMyBorrows();
-            checkOverdueBooks();
+            handleRefreshMyBorrows(); // Also re-checks overdue books
         }));
         task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Return Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        clientService.execute(task);
     }
 
     @FXML
     private void handleRefreshMyBorrows() {
-        Task<List<BorrowRecord>> task = new Task<>() {
-            @Override protected List<BorrowRecord> call() throws Exception {
-                return clientService.getMyBorrowingRecords();
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> {
-            myBorrowsData.setAll(task.getValue());
-            checkOverdueBooks(); // Re-check overdue books after refreshing borrow list
-        }));
-        task.setOnFailed(e -> Platform.runLater(() -> AlertUtil.showError("Load Borrows Failed", task.getException().getMessage())));
-        new Thread(task).start();
+        refreshScheduler.refresh("myBorrows",
+                clientService::getMyBorrowingRecords,
+                records -> {
+                    TableDiff.applyBorrowRecords(myBorrowsTableView, records);
+                    bookTitles.resolve(records, myBorrowsTableView::refresh);
+                    saveSnapshot();
+                    checkOverdueBooks(); // Re-check overdue books after refreshing borrow list
+                },
+                ex -> AlertUtil.showError("Load Borrows Failed", ex.getMessage()));
     }
 
     @FXML
@@ -205,74 +290,74 @@ public class UserDashboardController {
                 return clientService.getMyRecommendations(limit);
             }
         };
-        task.setOnSucceeded(e -> Platform.runLater(() -> {
-            List<Book> recommended = task.getValue();
-            if (recommended.isEmpty()) {
-                recommendationsData.setAll("No recommendations available at the moment.");
-            } else {
-                recommendationsData.setAll(
-                        recommended.stream()
-                                .map(b -> b.getTitle() + " by " + b.getAuthor() + " (Category: " + b.getCategory() + ")")
-                                .collect(Collectors.toList())
-                );
-            }
-        }));
+        task.setOnSucceeded(e -> Platform.runLater(() -> showRecommendations(task.getValue())));
         task.setOnFailed(e -> Platform.runLater(() -> {
             AlertUtil.showError("Recommendations Failed", task.getException().getMessage());
             recommendationsData.setAll("Error fetching recommendations.");
         }));
-        new Thread(task).start();
+        clientService.execute(task);
     }
 
-    // Helper method to fetch book title, handling potential IOException
-    private String getBookTitleSafely(String bookId) {
-        try {
-            Book book = clientService.getBookById(bookId);
-            return (book != null) ? book.getTitle() : "Unknown Title (ID: " + bookId + ")";
-        } catch (IOException e) {
-            System.err.println("Error fetching book title for ID " + bookId + ": " + e.getMessage());
-            return "Title Unavailable (ID: " + bookId + ")";
+    private void showRecommendations(List<Book> recommended) {
+        if (recommended.isEmpty()) {
+            recommendationsData.setAll("No recommendations available at the moment.");
+        } else {
+            recommendationsData.setAll(
+                    recommended.stream()
+                            .map(b -> b.getTitle() + " by " + b.getAuthor() + " (Category: " + b.getCategory() + ")")
+                            .collect(Collectors.toList())
+            );
         }
     }
 
-    private void checkOverdueBooks() {
-        Task<List<BorrowRecord>> task = new Task<>() {
-            @Override protected List<BorrowRecord> call() throws Exception {
-                return clientService.getMyOverdueBooks(); // This fetches the records
-            }
-        };
-        task.setOnSucceeded(e -> Platform.runLater(() -> {
-            List<BorrowRecord> overdue = task.getValue();
-            if (overdue != null && !overdue.isEmpty()) {
-                // Fetching book titles can be slow if done one by one synchronously on FX thread.
-                // For a small number of overdue books, this might be acceptable.
-                // For many, consider batching or a different approach.
+    private void showOverdueBooks(List<BorrowRecord> overdue) {
+        if (overdue != null && !overdue.isEmpty()) {
+            overdueLabel.setText("OVERDUE BOOKS: " + overdue.size() + " item(s). Please return them soon!");
+            // Titles come from the cache; any that are missing are fetched in one request before the alert is shown
+            bookTitles.resolve(overdue, () -> {
                 String overdueBooksString = overdue.stream()
-                        .map(br -> getBookTitleSafely(br.getBookId())) // Use helper method
-                        .filter(Objects::nonNull)
+                        .map(br -> bookTitles.titleOf(br.getBookId()))
                         .collect(Collectors.joining(", "));
-
-                overdueLabel.setText("OVERDUE BOOKS: " + overdue.size() + " item(s). Please return them soon!");
                 AlertUtil.showWarning("Overdue Books", "You have " + overdue.size() + " overdue book(s)!",
                         "Books: " + (overdueBooksString.isEmpty() ? "Details unavailable" : overdueBooksString) + ". Please return them as soon as possible.");
-            } else {
-                overdueLabel.setText("");
-            }
-        }));
-        task.setOnFailed(e -> Platform.runLater(() -> {
-            overdueLabel.setText("Error checking overdue books.");
-            // Optionally show an alert for this failure too
-            // AlertUtil.showError("Overdue Check Failed", "Could not check for overdue books: " + task.getException().getMessage());
-            System.err.println("Failed to check overdue books: " + task.getException().getMessage());
-        }));
-        new Thread(task).start();
+            });
+        } else {
+            overdueLabel.setText("");
+        }
+    }
+
+    private void checkOverdueBooks() {
+        refreshScheduler.refresh("overdue",
+                clientService::getMyOverdueBooks, // This fetches the records
+                this::showOverdueBooks,
+                ex -> {
+                    overdueLabel.setText("Error checking overdue books.");
+                    // Optionally show an alert for this failure too
+                    // AlertUtil.showError("Overdue Check Failed", "Could not check for overdue books: " + ex.getMessage());
+                    System.err.println("Failed to check overdue books: " + ex.getMessage());
+                });
     }
 
 
     @FXML
     private void handleLogout() {
         // Perform logout actions, e.g., notify server, clear session
-        clientService.logout(); // Clears currentUser in ClientService
+        clearSession();
+        clientService.logoutInBackground(); // Off the FX thread; the next login waits for it
         mainApp.showLoginView();
     }
+
+    // The view is cached and reused for the next login, so nothing from this session may stay on screen.
+    private void clearSession() {
+        searchTermField.clear(); // Before cancelAll(): clearing the search box triggers a search
+        refreshScheduler.cancelAll(); // Don't let pending loads land on a dashboard that is going away
+        catalog = new CatalogIndex();
+        snapshotStore = null;
+        filteredBooks.setPredicate(null);
+        booksData.clear();
+        myBorrowsData.clear();
+        recommendationsData.clear();
+        overdueLabel.setText("");
+        welcomeLabel.setText("");
+    }
 }
\ No newline at end of file
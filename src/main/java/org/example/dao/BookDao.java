@@ -2,15 +2,40 @@ package org.example.dao;
 
 import org.example.db.DatabaseManager;
 import org.example.model.Book;
+import org.example.model.InventoryDrift;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class BookDao {
+    // Upper bound on placeholders per IN (...) query; larger requests are split into several queries
+    private static final int MAX_IDS_PER_QUERY = 500;
+    // Rows per executeBatch() call for bulk writes; keeps each rewritten statement well under max_allowed_packet
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    /**
+     * True if the values fit the books columns (book_id, title and author VARCHAR(255), category VARCHAR(100),
+     * counted in characters). In strict mode one value that is too long fails a whole batched INSERT, so bulk
+     * writers check every row first. A null category fits.
+     */
+    public static boolean fitsColumns(String bookId, String title, String author, String category) {
+        return !tooLong(bookId, 255) && !tooLong(title, 255) && !tooLong(author, 255)
+                && (category == null || !tooLong(category, 100));
+    }
+
+    private static boolean tooLong(String value, int maxChars) {
+        return value.codePointCount(0, value.length()) > maxChars;
+    }
 
     public boolean addBook(Book book) {
         if (getBookById(book.getBookId()).isPresent()) {
@@ -49,6 +74,126 @@ public class BookDao {
         return Optional.empty();
     }
 
+    // Multi-get: resolves many IDs with one WHERE book_id IN (...) query instead of one getBookById per ID.
+    // Unknown IDs are simply absent from the returned map.
+    public Map<String, Book> getBooksByIds(Collection<String> bookIds) {
+        Map<String, Book> books = new LinkedHashMap<>();
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        if (distinctIds.isEmpty()) {
+            return books;
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_QUERY) {
+                List<String> chunk = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinctIds.size()));
+                String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(", "));
+                String sql = "SELECT * FROM books WHERE book_id IN (" + placeholders + ")";
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    int paramIndex = 1;
+                    for (String bookId : chunk) {
+                        pstmt.setString(paramIndex++, bookId);
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Book book = mapRowToBook(rs);
+                            books.put(book.getBookId(), book);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching books by IDs: " + e.getMessage());
+        }
+        return books;
+    }
+
+    /**
+     * Which of the given IDs exist already, locking them until the caller's transaction ends. Under InnoDB's default
+     * REPEATABLE READ the lock also covers the IDs that are missing (gap locks), so a concurrent ADD_BOOK or
+     * DELETE_BOOK of one of them waits instead of invalidating the answer before the bulk write commits.
+     */
+    public Set<String> findExistingBookIdsForUpdate(Collection<String> bookIds, Connection conn) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(bookIds));
+        for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_QUERY) {
+            List<String> chunk = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinctIds.size()));
+            String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(", "));
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT book_id FROM books WHERE book_id IN (" + placeholders + ") FOR UPDATE")) {
+                int paramIndex = 1;
+                for (String bookId : chunk) {
+                    pstmt.setString(paramIndex++, bookId);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    // Bulk insert on the caller's connection (and transaction). Unlike addBook there is no existence check here;
+    // the caller validates first, and a duplicate key fails the whole batch.
+    public void addBooks(List<Book> books, Connection conn) throws SQLException {
+        insertBatched("INSERT INTO books (book_id, title, author, category, quantity, total_quantity) VALUES (?, ?, ?, ?, ?, ?)", books, conn);
+    }
+
+    // Bulk load for the offline catalog importer. Books whose ID already exists are left alone, or overwritten when
+    // replaceExisting is set, so loading the same rows twice (e.g. after a restart) is harmless.
+    public void importBooks(List<Book> books, boolean replaceExisting, Connection conn) throws SQLException {
+        String onDuplicate = replaceExisting
+                ? "title = VALUES(title), author = VALUES(author), category = VALUES(category), quantity = VALUES(quantity), total_quantity = VALUES(total_quantity)"
+                : "book_id = book_id";
+        insertBatched("INSERT INTO books (book_id, title, author, category, quantity, total_quantity) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE " + onDuplicate, books, conn);
+    }
+
+    private void insertBatched(String sql, List<Book> books, Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Book book : books) {
+                pstmt.setString(1, book.getBookId());
+                pstmt.setString(2, book.getTitle());
+                pstmt.setString(3, book.getAuthor());
+                pstmt.setString(4, book.getCategory());
+                pstmt.setInt(5, book.getQuantity());
+                pstmt.setInt(6, book.getTotalQuantity());
+                pstmt.addBatch();
+                if (++pending == WRITE_BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    // Bulk update on the caller's connection (and transaction).
+    public void updateBooks(List<Book> books, Connection conn) throws SQLException {
+        String sql = "UPDATE books SET title = ?, author = ?, category = ?, quantity = ?, total_quantity = ? WHERE book_id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Book book : books) {
+                pstmt.setString(1, book.getTitle());
+                pstmt.setString(2, book.getAuthor());
+                pstmt.setString(3, book.getCategory());
+                pstmt.setInt(4, book.getQuantity());
+                pstmt.setInt(5, book.getTotalQuantity());
+                pstmt.setString(6, book.getBookId());
+                pstmt.addBatch();
+                if (++pending == WRITE_BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
     public List<Book> getAllBooks() {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT * FROM books";
@@ -64,6 +209,21 @@ public class BookDao {
         return books;
     }
 
+    // Streams every book to the consumer without holding the catalog in memory. Returns the number of rows visited.
+    public int forEachBook(Consumer<Book> action) throws SQLException {
+        String sql = "SELECT * FROM books";
+        int count = 0;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = DatabaseManager.prepareStreamingStatement(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                action.accept(mapRowToBook(rs));
+                count++;
+            }
+        }
+        return count;
+    }
+
     public boolean updateBook(Book book) {
         String sql = "UPDATE books SET title = ?, author = ?, category = ?, quantity = ?, total_quantity = ? WHERE book_id = ?";
         try (Connection conn = DatabaseManager.getConnection();
@@ -186,4 +346,59 @@ public class BookDao {
                 rs.getInt("total_quantity")
         );
     }
+
+    // Lowest and highest book_key, or null if there are no books.
+    public int[] getBookKeyRange() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(book_key), MAX(book_key) FROM books")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return new int[]{rs.getInt(1), rs.getInt(2)};
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Books with firstBookKey <= book_key <= lastBookKey whose quantity differs from total_quantity minus their
+     * unreturned loans. One statement, so books and loans are read from the same snapshot; the count per book comes
+     * from the (book_key, return_date) index. Active loans are never archived, so borrow_records is enough.
+     */
+    public List<InventoryDrift> findQuantityDrift(int firstBookKey, int lastBookKey) throws SQLException {
+        String sql = "SELECT b.book_id, b.quantity, b.total_quantity, " +
+                "(SELECT COUNT(*) FROM borrow_records br WHERE br.book_key = b.book_key AND br.return_date IS NULL) AS active_loans " +
+                "FROM books b WHERE b.book_key BETWEEN ? AND ? " +
+                "HAVING b.quantity <> b.total_quantity - active_loans";
+        List<InventoryDrift> drift = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, firstBookKey);
+            pstmt.setInt(2, lastBookKey);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    drift.add(new InventoryDrift(rs.getString("book_id"), rs.getInt("quantity"),
+                            rs.getInt("total_quantity"), rs.getInt("active_loans")));
+                }
+            }
+        }
+        return drift;
+    }
+
+    /**
+     * Sets a book's quantity to total_quantity minus its unreturned loans, counted again inside the UPDATE. Runs as
+     * its own autocommitted statement, so only this book's row is locked and only briefly. Nothing is changed if the
+     * quantity is no longer expectedCurrent (a borrow or return got there first) or the result would be negative.
+     * Returns true if the row was corrected.
+     */
+    public boolean repairQuantity(String bookId, int expectedCurrent) throws SQLException {
+        String activeLoans = "(SELECT COUNT(*) FROM borrow_records br WHERE br.book_key = b.book_key AND br.return_date IS NULL)";
+        String sql = "UPDATE books b SET b.quantity = b.total_quantity - " + activeLoans + " " +
+                "WHERE b.book_id = ? AND b.quantity = ? AND b.total_quantity >= " + activeLoans;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, bookId);
+            pstmt.setInt(2, expectedCurrent);
+            return pstmt.executeUpdate() > 0;
+        }
+    }
 }
\ No newline at end of file
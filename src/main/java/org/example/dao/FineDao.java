@@ -0,0 +1,161 @@
+package org.example.dao;
+
+import org.example.db.DatabaseManager;
+import org.example.model.BorrowRecord;
+import org.example.model.Fine;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Tables of the nightly fine job: fines (one row per late loan), fine_runs (one row per night) and
+ * fine_run_partitions (the user_key ranges a night's run has finished, so an interrupted run can resume).
+ */
+public class FineDao {
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    // Lowest and highest user_key, or null if there are no users.
+    public int[] getUserKeyRange() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(user_key), MAX(user_key) FROM users")) {
+            if (rs.next() && rs.getObject(1) != null) {
+                return new int[]{rs.getInt(1), rs.getInt(2)};
+            }
+            return null;
+        }
+    }
+
+    public boolean isRunFinished(LocalDate runDate) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT finished_at FROM fine_runs WHERE run_date = ?")) {
+            pstmt.setDate(1, Date.valueOf(runDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getTimestamp(1) != null;
+            }
+        }
+    }
+
+    // Records that the night's run has begun; does nothing when resuming one.
+    public void startRun(LocalDate runDate) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("INSERT IGNORE INTO fine_runs (run_date) VALUES (?)")) {
+            pstmt.setDate(1, Date.valueOf(runDate));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Totals cover the whole run, including partitions finished before a restart.
+    public void finishRun(LocalDate runDate) throws SQLException {
+        String sql = "UPDATE fine_runs r SET finished_at = CURRENT_TIMESTAMP, " +
+                "loans_scanned = (SELECT COALESCE(SUM(loans_scanned), 0) FROM fine_run_partitions p WHERE p.run_date = r.run_date), " +
+                "fines_written = (SELECT COALESCE(SUM(fines_written), 0) FROM fine_run_partitions p WHERE p.run_date = r.run_date) " +
+                "WHERE run_date = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(runDate));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // first_user_key of every partition the run has already finished.
+    public Set<Integer> getFinishedPartitions(LocalDate runDate) throws SQLException {
+        Set<Integer> finished = new HashSet<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT first_user_key FROM fine_run_partitions WHERE run_date = ?")) {
+            pstmt.setDate(1, Date.valueOf(runDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    finished.add(rs.getInt(1));
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Streams the loans of users firstUserKey..lastUserKey that owe a fine as of runDate, with each book's category:
+     * loans still out past their due date, and loans returned late whose fine has not been assessed since the return.
+     * Fines of loans returned before an earlier run are final and are skipped. The connection is busy until this
+     * returns, so writes must go through another one.
+     */
+    public int forEachLateLoan(Connection conn, int firstUserKey, int lastUserKey, LocalDate runDate,
+                               BiConsumer<BorrowRecord, String> action) throws SQLException {
+        String sql = "SELECT br.record_id, br.user_id, br.book_id, br.borrow_date, br.due_date, br.return_date, b.category " +
+                "FROM borrow_records br " +
+                "JOIN books b ON b.book_key = br.book_key " +
+                "LEFT JOIN fines f ON f.record_id = br.record_id " +
+                "WHERE br.user_key BETWEEN ? AND ? AND br.due_date < ? " +
+                "AND (br.return_date IS NULL OR (br.return_date > br.due_date " +
+                "AND (f.record_id IS NULL OR f.assessed_on < br.return_date)))";
+        int count = 0;
+        try (PreparedStatement pstmt = DatabaseManager.prepareStreamingStatement(conn, sql)) {
+            pstmt.setInt(1, firstUserKey);
+            pstmt.setInt(2, lastUserKey);
+            pstmt.setDate(3, Date.valueOf(runDate));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Date returnDate = rs.getDate("return_date");
+                    BorrowRecord record = new BorrowRecord(rs.getInt("record_id"), rs.getString("user_id"), rs.getString("book_id"),
+                            rs.getDate("borrow_date").toLocalDate(), rs.getDate("due_date").toLocalDate(),
+                            returnDate != null ? returnDate.toLocalDate() : null);
+                    action.accept(record, rs.getString("category"));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Inserts or refreshes fines on the caller's connection (and transaction).
+    public void upsertFines(List<Fine> fines, Connection conn) throws SQLException {
+        String sql = "INSERT INTO fines (record_id, user_id, book_id, category, days_late, amount, assessed_on) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE category = VALUES(category), days_late = VALUES(days_late), " +
+                "amount = VALUES(amount), assessed_on = VALUES(assessed_on)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            for (Fine fine : fines) {
+                pstmt.setInt(1, fine.getRecordId());
+                pstmt.setString(2, fine.getUserId());
+                pstmt.setString(3, fine.getBookId());
+                pstmt.setString(4, fine.getCategory());
+                pstmt.setInt(5, fine.getDaysLate());
+                pstmt.setBigDecimal(6, fine.getAmount());
+                pstmt.setDate(7, Date.valueOf(fine.getAssessedOn()));
+                pstmt.addBatch();
+                if (++pending == WRITE_BATCH_SIZE) {
+                    pstmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    // Commit this together with the partition's fines, so a finished partition is never redone or half done.
+    public void markPartitionFinished(LocalDate runDate, int firstUserKey, int lastUserKey, long loansScanned,
+                                      long finesWritten, Connection conn) throws SQLException {
+        String sql = "INSERT INTO fine_run_partitions (run_date, first_user_key, last_user_key, loans_scanned, fines_written) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setDate(1, Date.valueOf(runDate));
+            pstmt.setInt(2, firstUserKey);
+            pstmt.setInt(3, lastUserKey);
+            pstmt.setLong(4, loansScanned);
+            pstmt.setLong(5, finesWritten);
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.dao;
+
+import org.example.db.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * The idempotency_keys table: responses of keyed BORROW_BOOK/RETURN_BOOK requests, so a retry is answered with the
+ * original result even after a server restart or when it reaches another instance. Rows older than the TTL are dead
+ * and get purged.
+ */
+public class IdempotencyKeyDao {
+
+    // The response remembered for key, unless it was stored before notBefore.
+    public Optional<String> findResponse(String key, long notBefore) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT response FROM idempotency_keys WHERE idem_key = ? AND created_at >= ?")) {
+            pstmt.setString(1, key);
+            pstmt.setTimestamp(2, new Timestamp(notBefore));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(rs.getString(1)) : Optional.empty();
+            }
+        }
+    }
+
+    // First response wins; a concurrent save of the same key by another instance is ignored.
+    public void saveResponse(String key, String response, long createdAt) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT IGNORE INTO idempotency_keys (idem_key, response, created_at) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, response);
+            pstmt.setTimestamp(3, new Timestamp(createdAt));
+            pstmt.executeUpdate();
+        }
+    }
+
+    public int deleteOlderThan(long cutoff) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM idempotency_keys WHERE created_at < ?")) {
+            pstmt.setTimestamp(1, new Timestamp(cutoff));
+            return pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.dao;
+
+import org.example.db.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * The user_sessions table: resumable login sessions, so a client that lost its connection (or whose server was
+ * restarted) can log back in with its session token instead of the password. Only a hash of each token is stored.
+ */
+public class SessionDao {
+
+    public void createSession(String tokenHash, String userId, long expiresAt) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "INSERT INTO user_sessions (token_hash, user_id, expires_at) VALUES (?, ?, ?)")) {
+            pstmt.setString(1, tokenHash);
+            pstmt.setString(2, userId);
+            pstmt.setTimestamp(3, new Timestamp(expiresAt));
+            pstmt.executeUpdate();
+        }
+    }
+
+    // The user of an unexpired session.
+    public Optional<String> findUserId(String tokenHash, long now) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT user_id FROM user_sessions WHERE token_hash = ? AND expires_at > ?")) {
+            pstmt.setString(1, tokenHash);
+            pstmt.setTimestamp(2, new Timestamp(now));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(rs.getString(1)) : Optional.empty();
+            }
+        }
+    }
+
+    public void extendSession(String tokenHash, long expiresAt) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE user_sessions SET expires_at = ? WHERE token_hash = ?")) {
+            pstmt.setTimestamp(1, new Timestamp(expiresAt));
+            pstmt.setString(2, tokenHash);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public void deleteSession(String tokenHash) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM user_sessions WHERE token_hash = ?")) {
+            pstmt.setString(1, tokenHash);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public int deleteExpired(long now) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM user_sessions WHERE expires_at <= ?")) {
+            pstmt.setTimestamp(1, new Timestamp(now));
+            return pstmt.executeUpdate();
+        }
+    }
+}
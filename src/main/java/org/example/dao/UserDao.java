@@ -11,6 +11,7 @@ import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class UserDao {
 
@@ -99,6 +100,20 @@ public class UserDao {
         return users;
     }
 
+    public int forEachUser(Consumer<User> action) throws SQLException {
+        String sql = "SELECT * FROM users";
+        int count = 0;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = DatabaseManager.prepareStreamingStatement(conn, sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                action.accept(mapRowToUser(rs));
+                count++;
+            }
+        }
+        return count;
+    }
+
     public boolean deleteUser(String userId) {
         // Consider implications: what happens to borrow records? (ON DELETE CASCADE handles DB side)
         String sql = "DELETE FROM users WHERE user_id = ?";
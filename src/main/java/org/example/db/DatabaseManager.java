@@ -20,8 +20,9 @@ public class DatabaseManager {
 
     // JDBC URL for MySQL
     // Added serverTimezone for compatibility, and allowPublicKeyRetrieval for some MySQL versions
+    // rewriteBatchedStatements lets Connector/J send a JDBC batch as multi-row INSERTs instead of one round trip per row
     private static final String DB_URL = "jdbc:mysql://" + DB_HOST + ":" + DB_PORT + "/" + DB_NAME +
-            "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+            "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true";
 
     // Private constructor to prevent instantiation
     private DatabaseManager() {}
@@ -37,6 +38,15 @@ public class DatabaseManager {
         return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
     }
 
+    // Forward-only, read-only statement that Connector/J streams row by row instead of buffering the whole
+    // result set in memory. Integer.MIN_VALUE is the driver's switch for this; the connection cannot run
+    // other statements until the result set has been fully read or closed.
+    public static PreparedStatement prepareStreamingStatement(Connection conn, String sql) throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        pstmt.setFetchSize(Integer.MIN_VALUE);
+        return pstmt;
+    }
+
     public static void initializeDatabase() {
         // IMPORTANT: Dropping tables in MySQL will fail if there are foreign key constraints
         // and the dependent table has data. For development, you might drop in reverse order of creation
@@ -61,44 +71,8 @@ public class DatabaseManager {
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
 
-            // Create Users Table - MySQL syntax
-            String createUserTableSql = "CREATE TABLE IF NOT EXISTS users (" +
-                    "user_id VARCHAR(255) PRIMARY KEY, " + // VARCHAR for flexibility
-                    "username VARCHAR(255) NOT NULL UNIQUE, " +
-                    "password_hash VARCHAR(255) NOT NULL, " +
-                    "role ENUM('ADMIN', 'NORMAL_USER') NOT NULL," + // MySQL ENUM type
-                    "is_active BOOLEAN NOT NULL DEFAULT TRUE" + // MySQL BOOLEAN (alias for TINYINT(1))
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;"; // Specify engine and charset
-            stmt.execute(createUserTableSql);
-            System.out.println("Users table created or already exists in MySQL.");
-
-            // Create Books Table - MySQL syntax
-            String createBooksTableSql = "CREATE TABLE IF NOT EXISTS books (" +
-                    "book_id VARCHAR(255) PRIMARY KEY, " +
-                    "title VARCHAR(255) NOT NULL, " +
-                    "author VARCHAR(255) NOT NULL, " +
-                    "category VARCHAR(100), " +
-                    "quantity INT NOT NULL DEFAULT 0, " +
-                    "total_quantity INT NOT NULL DEFAULT 0" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;";
-            stmt.execute(createBooksTableSql);
-            System.out.println("Books table created or already exists in MySQL.");
-
-            // Create Borrow Records Table - MySQL syntax
-            // AUTO_INCREMENT for MySQL is different from SQLite's AUTOINCREMENT
-            // DATE type for dates in MySQL
-            String createBorrowRecordsTableSql = "CREATE TABLE IF NOT EXISTS borrow_records (" +
-                    "record_id INT PRIMARY KEY AUTO_INCREMENT, " +
-                    "user_id VARCHAR(255) NOT NULL, " +
-                    "book_id VARCHAR(255) NOT NULL, " +
-                    "borrow_date DATE NOT NULL, " +
-                    "due_date DATE NOT NULL, " +
-                    "return_date DATE NULL, " + // DATE can be NULL
-                    "FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE, " +
-                    "FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE" +
-                    ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;";
-            stmt.execute(createBorrowRecordsTableSql);
-            System.out.println("Borrow records table created or already exists in MySQL.");
+            // Tables and indexes; does no DDL at all when the schema is already at the latest version
+            SchemaMigrator.migrate(conn);
 
             // Create an initial admin user if one doesn't exist
             String checkAdminSql = "SELECT COUNT(*) FROM users WHERE username = 'admin'";
@@ -0,0 +1,60 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A MySQL named lock (GET_LOCK) held on a connection of its own, for work that only one server instance may do at
+ * a time. MySQL releases the lock when that connection goes away, so a crashed holder never keeps it; tryAcquire()
+ * notices a lost connection and reports the lock as not held.
+ */
+public class NamedLock {
+    private final String name;
+    private Connection conn;
+
+    public NamedLock(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns true if this instance holds the lock, taking it if it is free. Never waits. Safe to call repeatedly:
+     * GET_LOCK nests on the same connection, so an already held lock is checked rather than taken again.
+     */
+    public synchronized boolean tryAcquire() {
+        try {
+            if (conn != null && !conn.isValid(2)) {
+                DatabaseManager.closeQuietly(conn); // The server already dropped the lock with the session
+                conn = null;
+            }
+            if (conn == null) {
+                conn = DatabaseManager.getConnection();
+            }
+            if (queryFlag("SELECT IS_USED_LOCK(?) = CONNECTION_ID()")) {
+                return true;
+            }
+            return queryFlag("SELECT GET_LOCK(?, 0)");
+        } catch (SQLException e) {
+            System.err.println("Could not check lock '" + name + "': " + e.getMessage());
+            DatabaseManager.closeQuietly(conn);
+            conn = null;
+            return false;
+        }
+    }
+
+    // Gives the lock up (if held) by closing its connection.
+    public synchronized void release() {
+        DatabaseManager.closeQuietly(conn);
+        conn = null;
+    }
+
+    private boolean queryFlag(String sql) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1; // NULL (free lock, or an error) reads as 0
+            }
+        }
+    }
+}
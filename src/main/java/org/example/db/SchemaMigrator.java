@@ -0,0 +1,407 @@
+package org.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema changes. Each migration has a number and runs once per database; the numbers that have been
+ * applied are recorded in schema_version. At startup a single query finds the current version, and when it is the
+ * latest nothing else is executed.
+ *
+ * MySQL commits DDL implicitly, so a migration cannot be rolled back if it fails halfway. Steps are therefore
+ * written to be safe to run again (IF NOT EXISTS, index lookups), and the version is only recorded once every
+ * step of a migration has succeeded; after a crash the migration simply runs again.
+ *
+ * To change the schema, append a migration with the next number. Never edit or reorder one that has shipped.
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "library_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final int BACKFILL_CHUNK = 10_000; // Rows per UPDATE, so no single huge transaction
+
+    // One step of a migration.
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    static class Migration {
+        final int version;
+        final String description;
+        final List<Step> steps;
+
+        Migration(int version, String description, Step... steps) {
+            this.version = version;
+            this.description = description;
+            this.steps = List.of(steps);
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Base tables",
+                    sql("CREATE TABLE IF NOT EXISTS users (" +
+                            "user_id VARCHAR(255) PRIMARY KEY, " + // VARCHAR for flexibility
+                            "username VARCHAR(255) NOT NULL UNIQUE, " +
+                            "password_hash VARCHAR(255) NOT NULL, " +
+                            "role ENUM('ADMIN', 'NORMAL_USER') NOT NULL," + // MySQL ENUM type
+                            "is_active BOOLEAN NOT NULL DEFAULT TRUE" + // MySQL BOOLEAN (alias for TINYINT(1))
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    sql("CREATE TABLE IF NOT EXISTS books (" +
+                            "book_id VARCHAR(255) PRIMARY KEY, " +
+                            "title VARCHAR(255) NOT NULL, " +
+                            "author VARCHAR(255) NOT NULL, " +
+                            "category VARCHAR(100), " +
+                            "quantity INT NOT NULL DEFAULT 0, " +
+                            "total_quantity INT NOT NULL DEFAULT 0" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    sql("CREATE TABLE IF NOT EXISTS borrow_records (" +
+                            "record_id INT PRIMARY KEY AUTO_INCREMENT, " +
+                            "user_id VARCHAR(255) NOT NULL, " +
+                            "book_id VARCHAR(255) NOT NULL, " +
+                            "borrow_date DATE NOT NULL, " +
+                            "due_date DATE NOT NULL, " +
+                            "return_date DATE NULL, " + // DATE can be NULL
+                            "FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE, " +
+                            "FOREIGN KEY (book_id) REFERENCES books(book_id) ON DELETE CASCADE" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            // Databases that predate migrations may already have these from the old startup code
+            new Migration(2, "Indexes for the paged admin record list",
+                    index("borrow_records", "idx_borrow_records_date_id", "borrow_date, record_id"),
+                    index("borrow_records", "idx_borrow_records_user_date", "user_id, borrow_date, record_id"),
+                    index("borrow_records", "idx_borrow_records_book_date", "book_id, borrow_date, record_id")),
+            // Per-user history (user_id, borrow_date) is already served by idx_borrow_records_user_date
+            new Migration(3, "Hot-path indexes: active loans, trending, category recommendations",
+                    index("borrow_records", "idx_borrow_records_user_book_return", "user_id, book_id, return_date"),
+                    index("borrow_records", "idx_borrow_records_date_book", "borrow_date, book_id"),
+                    index("books", "idx_books_category_quantity", "category, quantity")),
+            // Compact INT keys next to the VARCHAR IDs; migration 11 makes them the primary keys. The string IDs stay
+            // what the protocol uses; borrow_records carries both so aggregations can group and join on 4-byte ints.
+            // The borrow_records keys stay nullable: during a rolling deploy older servers still insert without
+            // them. The trigger fills them in for those inserts, and is created before the backfill so no row
+            // slips through in between. Make the columns NOT NULL in a later migration, once no server that
+            // predates this one can still be running.
+            new Migration(4, "Integer surrogate keys for users and books",
+                    column("users", "user_key", "INT NOT NULL AUTO_INCREMENT UNIQUE"), // Numbers existing rows too
+                    column("books", "book_key", "INT NOT NULL AUTO_INCREMENT UNIQUE"),
+                    column("borrow_records", "user_key", "INT NULL"),
+                    column("borrow_records", "book_key", "INT NULL"),
+                    trigger("borrow_records", "trg_borrow_records_keys", "BEFORE INSERT", "BEGIN " +
+                            "IF NEW.user_key IS NULL THEN " +
+                            "SET NEW.user_key = (SELECT user_key FROM users WHERE user_id = NEW.user_id); END IF; " +
+                            "IF NEW.book_key IS NULL THEN " +
+                            "SET NEW.book_key = (SELECT book_key FROM books WHERE book_id = NEW.book_id); END IF; " +
+                            "END"),
+                    SchemaMigrator::backfillBorrowRecordKeys,
+                    index("borrow_records", "idx_borrow_records_book_key_date", "book_key, borrow_date"),
+                    index("borrow_records", "idx_borrow_records_date_book_key", "borrow_date, book_key"),
+                    foreignKey("borrow_records", "fk_borrow_records_user_key", "user_key", "users(user_key)"),
+                    foreignKey("borrow_records", "fk_borrow_records_book_key", "book_key", "books(book_key)")),
+            // Cold storage for old returned records, moved there by BorrowRecordArchiver. LIKE copies the columns
+            // and indexes but not foreign keys, so those are added separately. (Partitioning borrow_records by
+            // borrow_date would not work here: InnoDB does not allow foreign keys on partitioned tables.)
+            new Migration(5, "Archive table for old borrow records",
+                    sql("CREATE TABLE IF NOT EXISTS borrow_records_archive LIKE borrow_records"),
+                    foreignKey("borrow_records_archive", "fk_archive_user_key", "user_key", "users(user_key)"),
+                    foreignKey("borrow_records_archive", "fk_archive_book_key", "book_key", "books(book_key)")),
+            // return_date IS NULL AND due_date < ? becomes a range over just the overdue loans
+            new Migration(6, "Overdue loan index",
+                    index("borrow_records", "idx_borrow_records_return_due", "return_date, due_date, record_id")),
+            // The fine job reads borrow_records a user_key range at a time. fines has no foreign key to
+            // borrow_records because the archiver moves old records out of it.
+            new Migration(7, "Fines and fine job bookkeeping",
+                    index("borrow_records", "idx_borrow_records_user_key_due", "user_key, due_date, return_date"),
+                    sql("CREATE TABLE IF NOT EXISTS fines (" +
+                            "record_id INT PRIMARY KEY, " +
+                            "user_id VARCHAR(255) NOT NULL, " +
+                            "book_id VARCHAR(255) NOT NULL, " +
+                            "category VARCHAR(100), " +
+                            "days_late INT NOT NULL, " +
+                            "amount DECIMAL(10, 2) NOT NULL, " +
+                            "assessed_on DATE NOT NULL, " +
+                            "INDEX idx_fines_user (user_id)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    sql("CREATE TABLE IF NOT EXISTS fine_runs (" +
+                            "run_date DATE PRIMARY KEY, " +
+                            "started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                            "finished_at TIMESTAMP NULL, " +
+                            "loans_scanned BIGINT NOT NULL DEFAULT 0, " +
+                            "fines_written BIGINT NOT NULL DEFAULT 0" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4"),
+                    sql("CREATE TABLE IF NOT EXISTS fine_run_partitions (" +
+                            "run_date DATE NOT NULL, " +
+                            "first_user_key INT NOT NULL, " +
+                            "last_user_key INT NOT NULL, " +
+                            "loans_scanned BIGINT NOT NULL, " +
+                            "fines_written BIGINT NOT NULL, " +
+                            "finished_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                            "PRIMARY KEY (run_date, first_user_key)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            // Unreturned loans per book, counted from the index alone by the inventory reconciliation
+            new Migration(8, "Active loans per book index",
+                    index("borrow_records", "idx_borrow_records_book_key_return", "book_key, return_date")),
+            // Responses of keyed borrows/returns outlive a restart. Keys are user id, request type and the
+            // client's key, all ASCII.
+            new Migration(9, "Idempotency keys",
+                    sql("CREATE TABLE IF NOT EXISTS idempotency_keys (" +
+                            "idem_key VARCHAR(400) CHARACTER SET ascii PRIMARY KEY, " +
+                            "response TEXT NOT NULL, " +
+                            "created_at TIMESTAMP(3) NOT NULL, " +
+                            "INDEX idx_idempotency_keys_created (created_at)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            // Session tokens handed out at login so a reconnecting client never has to keep the password.
+            // token_hash is the SHA-256 hex of the token.
+            new Migration(10, "Resumable login sessions",
+                    sql("CREATE TABLE IF NOT EXISTS user_sessions (" +
+                            "token_hash CHAR(64) CHARACTER SET ascii PRIMARY KEY, " +
+                            "user_id VARCHAR(255) NOT NULL, " +
+                            "expires_at TIMESTAMP NOT NULL, " +
+                            "INDEX idx_user_sessions_expires (expires_at)" +
+                            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4")),
+            // Finishes migration 4: user_key/book_key become the clustered primary keys, so every secondary index
+            // of users and books carries 4 bytes instead of a VARCHAR(255). The string IDs keep a UNIQUE index.
+            // borrow_records (and the archive, which was created LIKE it) lose the VARCHAR foreign keys, the
+            // single-column indexes MySQL made for them, and the (borrow_date, book_id) index that
+            // (borrow_date, book_key) replaced. The (user_id, ...) and (book_id, ...) indexes stay: the protocol
+            // still looks records up by string ID.
+            new Migration(11, "Integer keys become the primary keys",
+                    dropForeignKeys("borrow_records", "user_id"),
+                    dropForeignKeys("borrow_records", "book_id"),
+                    primaryKey("users", "user_key", "uk_users_user_id", "user_id"),
+                    primaryKey("books", "book_key", "uk_books_book_id", "book_id"),
+                    dropIndex("borrow_records", "user_id"),
+                    dropIndex("borrow_records", "book_id"),
+                    dropIndex("borrow_records", "idx_borrow_records_date_book"),
+                    dropIndex("borrow_records_archive", "user_id"),
+                    dropIndex("borrow_records_archive", "book_id"),
+                    dropIndex("borrow_records_archive", "idx_borrow_records_date_book"))
+    );
+
+    private SchemaMigrator() {}
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Brings the schema up to the latest version. Several servers may start at once; a MySQL named lock makes
+     * them take turns, and whoever comes second finds the work already done.
+     */
+    public static void migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        if (current >= latestVersion()) {
+            System.out.println("Database schema is current (version " + current + ").");
+            return;
+        }
+        if (!acquireLock(conn)) {
+            throw new SQLException("Timed out waiting for another server to finish migrating the schema.");
+        }
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INT PRIMARY KEY, " +
+                        "description VARCHAR(255) NOT NULL, " +
+                        "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP" +
+                        ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+            }
+            current = currentVersion(conn); // Another server may have migrated while we waited for the lock
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) {
+                    continue;
+                }
+                System.out.println("Applying schema migration " + migration.version + ": " + migration.description);
+                long start = System.currentTimeMillis();
+                for (Step step : migration.steps) {
+                    step.apply(conn);
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                    pstmt.setInt(1, migration.version);
+                    pstmt.setString(2, migration.description);
+                    pstmt.executeUpdate();
+                }
+                System.out.println("Schema migration " + migration.version + " done in " + (System.currentTimeMillis() - start) + " ms.");
+            }
+        } finally {
+            releaseLock(conn);
+        }
+    }
+
+    // 0 for a database that has never been migrated (no schema_version table yet).
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == 1146) { // ER_NO_SUCH_TABLE
+                return 0;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Could not release schema migration lock: " + e.getMessage()); // Released on disconnect anyway
+        }
+    }
+
+    // Copies the new keys into existing borrow records, a record_id range at a time (each range commits on its own).
+    private static void backfillBorrowRecordKeys(Connection conn) throws SQLException {
+        int maxId;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(record_id), 0) FROM borrow_records")) {
+            rs.next();
+            maxId = rs.getInt(1);
+        }
+        String sql = "UPDATE borrow_records br " +
+                "JOIN users u ON u.user_id = br.user_id " +
+                "JOIN books b ON b.book_id = br.book_id " +
+                "SET br.user_key = u.user_key, br.book_key = b.book_key " +
+                "WHERE br.record_id BETWEEN ? AND ? AND (br.user_key IS NULL OR br.book_key IS NULL)";
+        long updated = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int start = 1; start <= maxId; start += BACKFILL_CHUNK) {
+                pstmt.setInt(1, start);
+                pstmt.setInt(2, start + BACKFILL_CHUNK - 1);
+                updated += pstmt.executeUpdate();
+            }
+        }
+        System.out.println("Backfilled surrogate keys on " + updated + " borrow records.");
+    }
+
+    // --- Step builders ---
+
+    static Step sql(String statement) {
+        return conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(statement);
+            }
+        };
+    }
+
+    // MySQL has no CREATE INDEX IF NOT EXISTS, so look the index up first.
+    static Step index(String table, String indexName, String columns) {
+        return conn -> {
+            if (!indexExists(conn, table, indexName)) {
+                sql("CREATE INDEX " + indexName + " ON " + table + " (" + columns + ")").apply(conn);
+            }
+        };
+    }
+
+    static Step column(String table, String columnName, String definition) {
+        return conn -> {
+            String sql = "SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+            if (!exists(conn, sql, table, columnName)) {
+                sql("ALTER TABLE " + table + " ADD COLUMN " + columnName + " " + definition).apply(conn);
+            }
+        };
+    }
+
+    static Step foreignKey(String table, String constraintName, String column, String references) {
+        return conn -> {
+            String sql = "SELECT COUNT(*) FROM information_schema.table_constraints " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND constraint_name = ?";
+            if (!exists(conn, sql, table, constraintName)) {
+                sql("ALTER TABLE " + table + " ADD CONSTRAINT " + constraintName + " FOREIGN KEY (" + column + ") " +
+                        "REFERENCES " + references + " ON DELETE CASCADE").apply(conn);
+            }
+        };
+    }
+
+    static Step dropIndex(String table, String indexName) {
+        return conn -> {
+            if (indexExists(conn, table, indexName)) {
+                sql("ALTER TABLE " + table + " DROP INDEX " + indexName).apply(conn);
+            }
+        };
+    }
+
+    // Drops every foreign key on table.column, whatever MySQL named it (CREATE TABLE's unnamed ones are *_ibfk_N).
+    static Step dropForeignKeys(String table, String column) {
+        return conn -> {
+            String sql = "SELECT constraint_name FROM information_schema.key_column_usage " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ? AND referenced_table_name IS NOT NULL";
+            List<String> names = new ArrayList<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, table);
+                pstmt.setString(2, column);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        names.add(rs.getString(1));
+                    }
+                }
+            }
+            for (String name : names) {
+                sql("ALTER TABLE " + table + " DROP FOREIGN KEY " + name).apply(conn);
+            }
+        };
+    }
+
+    /**
+     * Moves the primary key of table to keyColumn (which must already be NOT NULL and unique) and keeps the old
+     * primary key column unique under uniqueName, all in one ALTER. The UNIQUE index that came with keyColumn
+     * (named like the column) is dropped, since the primary key now covers it.
+     */
+    static Step primaryKey(String table, String keyColumn, String uniqueName, String oldKeyColumn) {
+        return conn -> {
+            String sql = "SELECT COUNT(*) FROM information_schema.key_column_usage " +
+                    "WHERE table_schema = DATABASE() AND table_name = ? AND constraint_name = 'PRIMARY' AND column_name = ?";
+            if (exists(conn, sql, table, keyColumn)) {
+                return;
+            }
+            StringBuilder alter = new StringBuilder("ALTER TABLE ").append(table);
+            if (!indexExists(conn, table, uniqueName)) {
+                alter.append(" ADD UNIQUE KEY ").append(uniqueName).append(" (").append(oldKeyColumn).append("),");
+            }
+            alter.append(" DROP PRIMARY KEY, ADD PRIMARY KEY (").append(keyColumn).append(")");
+            if (indexExists(conn, table, keyColumn)) {
+                alter.append(", DROP INDEX ").append(keyColumn);
+            }
+            sql(alter.toString()).apply(conn);
+        };
+    }
+
+    // MySQL before 8.0.29 has no CREATE TRIGGER IF NOT EXISTS. JDBC sends the body as one statement, so the
+    // BEGIN ... END block needs no DELIMITER.
+    static Step trigger(String table, String triggerName, String timing, String body) {
+        return conn -> {
+            String sql = "SELECT COUNT(*) FROM information_schema.triggers " +
+                    "WHERE trigger_schema = DATABASE() AND event_object_table = ? AND trigger_name = ?";
+            if (!exists(conn, sql, table, triggerName)) {
+                sql("CREATE TRIGGER " + triggerName + " " + timing + " ON " + table + " FOR EACH ROW " + body).apply(conn);
+            }
+        };
+    }
+
+    private static boolean exists(Connection conn, String countSql, String table, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(countSql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    static boolean indexExists(Connection conn, String table, String indexName) throws SQLException {
+        return exists(conn, "SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?", table, indexName);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.jobs;
+
+import org.example.dao.BorrowRecordDao;
+import org.example.db.NamedLock;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background mover that keeps borrow_records small: records returned more than ARCHIVE_AFTER_DAYS ago are moved to
+ * borrow_records_archive in batches of BATCH_SIZE, each batch its own short transaction so borrowing and returning
+ * are never blocked for long. BorrowRecordDao reads the archive wherever a query needs the full history. Scheduled
+ * runs only happen on the instance holding a named lock, which it keeps until it stops; if it dies another instance
+ * takes over.
+ */
+public class BorrowRecordArchiver {
+    private static final int ARCHIVE_AFTER_DAYS = 365;
+    private static final int BATCH_SIZE = 1000;
+    private static final long INITIAL_DELAY_MINUTES = 5; // Let the server finish starting up first
+    private static final long PERIOD_HOURS = 6;
+    private static final String LOCK_NAME = "library_borrow_record_archiver";
+
+    private final BorrowRecordDao borrowRecordDao = new BorrowRecordDao();
+    private final NamedLock lock = new NamedLock(LOCK_NAME);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "borrow-record-archiver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runScheduled, INITIAL_DELAY_MINUTES, PERIOD_HOURS * 60, TimeUnit.MINUTES);
+        System.out.println("Borrow record archiver scheduled every " + PERIOD_HOURS + " hours.");
+    }
+
+    public void stop() {
+        scheduler.shutdownNow(); // The batch in flight either commits or rolls back; both are fine
+        lock.release();
+    }
+
+    private void runScheduled() {
+        if (!lock.tryAcquire()) {
+            System.out.println("Borrow record archiver: running on another instance, skipped.");
+            return;
+        }
+        runOnce();
+    }
+
+    // Moves everything that is due, one batch at a time. Returns the number of records archived.
+    int runOnce() {
+        LocalDate cutoff = LocalDate.now().minusDays(ARCHIVE_AFTER_DAYS);
+        int total = 0;
+        long start = System.currentTimeMillis();
+        try {
+            int moved;
+            do {
+                moved = borrowRecordDao.archiveReturnedBefore(cutoff, BATCH_SIZE);
+                total += moved;
+            } while (moved == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } catch (SQLException e) {
+            // Anything not moved stays in the hot table and is picked up next run
+            System.err.println("Error archiving borrow records: " + e.getMessage());
+        }
+        if (total > 0) {
+            System.out.println("Archived " + total + " borrow records returned before " + cutoff +
+                    " in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+        return total;
+    }
+}
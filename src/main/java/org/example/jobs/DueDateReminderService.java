@@ -0,0 +1,182 @@
+package org.example.jobs;
+
+import org.example.dao.BorrowRecordDao;
+import org.example.db.NamedLock;
+import org.example.model.BorrowRecord;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sends a DUE_SOON reminder DUE_SOON_DAYS before each active loan is due and an OVERDUE reminder the day after,
+ * both at SEND_AT. Every active loan has its timers in a HierarchicalTimingWheel, so nothing polls the database
+ * per loan.
+ *
+ * Only one server instance sends reminders: whichever holds the LOCK_NAME named lock. On taking the lock it loads
+ * all active loans; after that it picks up loans borrowed on any instance by polling for new record IDs every
+ * tick (a primary key range), and borrows and returns on its own instance update the wheel right away. A return on
+ * another instance, or one fixed directly in the database, is caught at delivery: reminders that fire are checked
+ * against borrow_records in one query and dropped if the book is back. If the holder dies, MySQL frees the lock and
+ * another instance takes over within a tick.
+ *
+ * Nothing records which reminders were sent, so on takeover only reminders still in the future are scheduled.
+ * One missed while no instance held the lock is not sent late (the admin's overdue report still lists the loan).
+ */
+public class DueDateReminderService {
+    public static final int DUE_SOON_DAYS = 2;
+    private static final String LOCK_NAME = "library_due_date_reminders";
+    private static final LocalTime SEND_AT = LocalTime.of(9, 0);
+    private static final long TICK_MILLIS = 60_000; // Reminders go out within a minute of SEND_AT
+    private static final int BITS_PER_LEVEL = 6;    // 64 one-minute slots, then ~45 hours, ~120 days, ~21 years
+    // Record IDs are assigned before commit, so a loan can become visible after a higher ID already was
+    private static final int NEW_LOAN_LOOKBACK = 1_000;
+
+    private final BorrowRecordDao borrowRecordDao = new BorrowRecordDao();
+    private final ReminderSink sink;
+    private final NamedLock lock = new NamedLock(LOCK_NAME);
+    private final ZoneId zone = ZoneId.systemDefault();
+    private volatile HierarchicalTimingWheel<Reminder> wheel; // Null while another instance sends the reminders
+    // The pending timers of each loan, so a return can cancel them and a loan is never scheduled twice
+    private final Map<Integer, List<HierarchicalTimingWheel.Timeout<Reminder>>> timersByRecord = new ConcurrentHashMap<>();
+    private int highestRecordId; // Tick thread only
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "due-date-reminders");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DueDateReminderService(ReminderSink sink) {
+        this.sink = sink;
+    }
+
+    public void start() {
+        clock.scheduleAtFixedRate(this::tick, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        clock.shutdownNow();
+        lock.release();
+        sink.close();
+    }
+
+    // Called after a borrow commits. Does nothing unless this instance sends the reminders.
+    public void loanBorrowed(BorrowRecord record) {
+        HierarchicalTimingWheel<Reminder> current = wheel;
+        if (current == null || timersByRecord.containsKey(record.getRecordId())) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<HierarchicalTimingWheel.Timeout<Reminder>> timers = new ArrayList<>(2);
+        schedule(current, timers, now, record.getDueDate().minusDays(DUE_SOON_DAYS), Reminder.Type.DUE_SOON, record);
+        schedule(current, timers, now, record.getDueDate().plusDays(1), Reminder.Type.OVERDUE, record);
+        if (!timers.isEmpty() && timersByRecord.putIfAbsent(record.getRecordId(), timers) != null) {
+            timers.forEach(HierarchicalTimingWheel.Timeout::cancel); // Scheduled concurrently by the poll
+        }
+    }
+
+    // Called after a return commits.
+    public void loanReturned(BorrowRecord record) {
+        List<HierarchicalTimingWheel.Timeout<Reminder>> timers = timersByRecord.remove(record.getRecordId());
+        if (timers != null) {
+            timers.forEach(HierarchicalTimingWheel.Timeout::cancel);
+        }
+    }
+
+    public int pendingReminders() {
+        HierarchicalTimingWheel<Reminder> current = wheel;
+        return current != null ? current.size() : 0;
+    }
+
+    private void schedule(HierarchicalTimingWheel<Reminder> target, List<HierarchicalTimingWheel.Timeout<Reminder>> timers,
+                          long now, LocalDate day, Reminder.Type type, BorrowRecord record) {
+        long at = day.atTime(SEND_AT).atZone(zone).toInstant().toEpochMilli();
+        if (at > now) {
+            timers.add(target.schedule(at, new Reminder(type, record.getRecordId(), record.getUserId(), record.getBookId(), record.getDueDate())));
+        }
+    }
+
+    private void tick() {
+        try {
+            if (!lock.tryAcquire()) {
+                if (wheel != null) {
+                    System.out.println("Reminder service: lost the reminder lock, another instance takes over.");
+                    stepDown();
+                }
+                return;
+            }
+            if (wheel == null) {
+                takeOver();
+            } else {
+                pollNewLoans();
+            }
+            deliver(wheel.advanceTo(System.currentTimeMillis()));
+        } catch (SQLException | RuntimeException e) {
+            // An exception would cancel the periodic task and silence all reminders
+            System.err.println("Error in reminder service: " + e.getMessage());
+        }
+    }
+
+    private void takeOver() throws SQLException {
+        long start = System.currentTimeMillis();
+        wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, BITS_PER_LEVEL, start);
+        highestRecordId = 0;
+        try {
+            int loans = borrowRecordDao.forEachActiveLoan(null, null, this::loadLoan);
+            System.out.println("Reminder service: sending reminders from this instance; " + wheel.size() + " reminders for "
+                    + loans + " active loans loaded in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (SQLException e) {
+            stepDown(); // Try again from scratch next tick
+            throw e;
+        }
+    }
+
+    private void stepDown() {
+        wheel = null;
+        timersByRecord.clear();
+        lock.release();
+    }
+
+    private void pollNewLoans() throws SQLException {
+        borrowRecordDao.forEachActiveLoanAfter(Math.max(0, highestRecordId - NEW_LOAN_LOOKBACK), this::loadLoan);
+    }
+
+    private void loadLoan(BorrowRecord record) {
+        highestRecordId = Math.max(highestRecordId, record.getRecordId());
+        loanBorrowed(record);
+    }
+
+    // Hands fired reminders to the sink, except for loans that were returned in the meantime (on any instance).
+    private void deliver(List<Reminder> fired) throws SQLException {
+        if (fired.isEmpty()) {
+            return;
+        }
+        Set<Integer> unreturned;
+        try {
+            unreturned = borrowRecordDao.getUnreturnedRecordIds(
+                    fired.stream().map(Reminder::getRecordId).collect(Collectors.toSet()));
+        } catch (SQLException e) {
+            long retryAt = System.currentTimeMillis() + TICK_MILLIS;
+            fired.forEach(reminder -> wheel.schedule(retryAt, reminder)); // Not sent unchecked, not lost either
+            throw e;
+        }
+        for (Reminder reminder : fired) {
+            if (reminder.getType() == Reminder.Type.OVERDUE || !unreturned.contains(reminder.getRecordId())) {
+                timersByRecord.remove(reminder.getRecordId()); // Nothing left to cancel
+            }
+            if (unreturned.contains(reminder.getRecordId())) {
+                sink.deliver(reminder);
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.jobs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+// Appends one line per reminder (sentAt|type|recordId|userId|bookId|dueDate) to a file, for a mailer to pick up.
+public class FileReminderSink implements ReminderSink {
+    private final Path file;
+    private BufferedWriter writer;
+
+    public FileReminderSink(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void deliver(Reminder reminder) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(LocalDateTime.now() + "|" + reminder);
+            writer.newLine();
+            writer.flush(); // Reminders arrive in small bursts; keep the file current for whoever tails it
+        } catch (IOException e) {
+            System.err.println("Could not write reminder to " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Error closing reminder file " + file + ": " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package org.example.jobs;
+
+import org.example.dao.FineDao;
+import org.example.db.DatabaseManager;
+import org.example.db.NamedLock;
+import org.example.model.Fine;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nightly late fees. Users are split into fixed ranges of PARTITION_SIZE user_keys; a ForkJoinPool works through the
+ * ranges in parallel, each reading its users' late loans (FineDao.forEachLateLoan) on one connection and writing
+ * fines in batches on another. A range's fines and its entry in fine_run_partitions commit together, so a run that
+ * is interrupted resumes with the ranges it had not finished.
+ *
+ * Days late are counted up to the return date, or up to the run date for loans still out; the amount comes from
+ * FineRates. Only borrow_records is read: archived records were returned long ago, so their fines are final.
+ *
+ * Usage: FineCalculationJob [--date yyyy-MM-dd] [--parallelism N] [--rates file]
+ * (the server also runs it every night at RUN_AT).
+ */
+public class FineCalculationJob {
+    public static final String DEFAULT_RATES_FILE = "fine-rates.properties";
+    private static final LocalTime RUN_AT = LocalTime.of(2, 0);
+    private static final int PARTITION_SIZE = 10_000; // user_keys per partition
+    private static final int WRITE_CHUNK = 5_000;     // Fines held in memory per partition before they are written
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+    // Every server instance schedules the nightly run; the lock lets only one of them (or a manual run) work on it
+    private static final String LOCK_NAME = "library_fine_job";
+
+    private final FineDao fineDao = new FineDao();
+    private final Path ratesFile;
+    private final int parallelism;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fine-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public FineCalculationJob(Path ratesFile, int parallelism) {
+        this.ratesFile = ratesFile;
+        this.parallelism = parallelism;
+    }
+
+    public static void main(String[] args) {
+        LocalDate runDate = LocalDate.now();
+        int parallelism = defaultParallelism();
+        Path rates = Paths.get(DEFAULT_RATES_FILE);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--date": runDate = LocalDate.parse(args[++i]); break;
+                    case "--parallelism": parallelism = Integer.parseInt(args[++i]); break;
+                    case "--rates": rates = Paths.get(args[++i]); break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (parallelism <= 0) throw new IllegalArgumentException("--parallelism");
+        } catch (RuntimeException e) {
+            System.err.println("Usage: FineCalculationJob [--date yyyy-MM-dd] [--parallelism N] [--rates file]");
+            System.exit(2);
+        }
+        try {
+            new FineCalculationJob(rates, parallelism).run(runDate);
+        } catch (Exception e) {
+            System.err.println("Fine calculation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public static int defaultParallelism() {
+        return Math.min(8, Runtime.getRuntime().availableProcessors()); // The database is the limit, not the CPUs
+    }
+
+    // Runs every night at RUN_AT. If the server starts after RUN_AT and today's run is missing or unfinished, it
+    // runs (or resumes) right away.
+    public void start() {
+        long delay = millisUntil(RUN_AT);
+        try {
+            if (LocalTime.now().isAfter(RUN_AT) && !fineDao.isRunFinished(LocalDate.now())) {
+                delay = 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not check today's fine run: " + e.getMessage());
+        }
+        scheduler.schedule(this::runScheduled, delay, TimeUnit.MILLISECONDS);
+        System.out.println("Fine job scheduled in " + Duration.ofMillis(delay).toMinutes() + " minutes.");
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            run(LocalDate.now());
+        } catch (Exception e) {
+            System.err.println("Nightly fine calculation failed: " + e.getMessage()); // Resumes on the next start or night
+        } finally {
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(this::runScheduled, millisUntil(RUN_AT), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static long millisUntil(LocalTime time) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(time);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        return ChronoUnit.MILLIS.between(now, next);
+    }
+
+    /**
+     * Assesses fines as of runDate. Partitions already finished for runDate are skipped, so running again after a
+     * failure only does the rest. Rates are reread on every run. Does nothing while another instance is running.
+     */
+    public void run(LocalDate runDate) throws Exception {
+        NamedLock lock = new NamedLock(LOCK_NAME);
+        if (!lock.tryAcquire()) {
+            System.out.println("Fines are being calculated by another instance, skipped.");
+            return;
+        }
+        try {
+            calculate(runDate);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private void calculate(LocalDate runDate) throws Exception {
+        if (fineDao.isRunFinished(runDate)) {
+            System.out.println("Fines for " + runDate + " were already calculated.");
+            return;
+        }
+        int[] keys = fineDao.getUserKeyRange();
+        if (keys == null) {
+            System.out.println("No users, no fines.");
+            return;
+        }
+        FineRates rates = FineRates.load(ratesFile);
+        fineDao.startRun(runDate);
+        Set<Integer> finished = fineDao.getFinishedPartitions(runDate);
+        int firstPartition = keys[0] / PARTITION_SIZE;
+        int lastPartition = keys[1] / PARTITION_SIZE;
+        int total = lastPartition - firstPartition + 1;
+        System.out.println("Calculating fines as of " + runDate + ": " + total + " partitions of " + PARTITION_SIZE
+                + " users (" + finished.size() + " already done), parallelism " + parallelism + ", rates: " + rates);
+
+        Progress progress = new Progress(total, finished.size());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "fine-job-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(progress::print, PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new PartitionRange(firstPartition, lastPartition + 1, runDate, rates, finished, progress));
+        } finally {
+            pool.shutdown();
+            reporter.shutdownNow();
+        }
+        progress.print();
+        if (progress.failed.get() > 0) {
+            throw new SQLException(progress.failed.get() + " partitions failed; run again to retry them");
+        }
+        fineDao.finishRun(runDate);
+        System.out.println("Fines for " + runDate + " done.");
+    }
+
+    // Splits [from, to) in halves until a single partition is left, which it then processes.
+    private class PartitionRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+        private final LocalDate runDate;
+        private final FineRates rates;
+        private final Set<Integer> finished;
+        private final Progress progress;
+
+        PartitionRange(int from, int to, LocalDate runDate, FineRates rates, Set<Integer> finished, Progress progress) {
+            this.from = from;
+            this.to = to;
+            this.runDate = runDate;
+            this.rates = rates;
+            this.finished = finished;
+            this.progress = progress;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PartitionRange(from, mid, runDate, rates, finished, progress),
+                        new PartitionRange(mid, to, runDate, rates, finished, progress));
+                return;
+            }
+            int firstKey = from * PARTITION_SIZE;
+            if (finished.contains(firstKey)) {
+                return;
+            }
+            try {
+                processPartition(firstKey, firstKey + PARTITION_SIZE - 1, runDate, rates, progress);
+                progress.partitionsDone.incrementAndGet();
+            } catch (SQLException e) {
+                // Other partitions carry on; this one is retried by the next run
+                System.err.println("Fine partition starting at user_key " + firstKey + " failed: " + e.getMessage());
+                progress.failed.incrementAndGet();
+            }
+        }
+    }
+
+    private void processPartition(int firstKey, int lastKey, LocalDate runDate, FineRates rates, Progress progress) throws SQLException {
+        Connection reader = null;
+        Connection writer = null;
+        try {
+            reader = DatabaseManager.getConnection();
+            writer = DatabaseManager.getConnection();
+            writer.setAutoCommit(false);
+            Connection out = writer;
+            List<Fine> pending = new ArrayList<>(WRITE_CHUNK);
+            long[] written = {0};
+            SQLException[] writeError = {null};
+            int loans = fineDao.forEachLateLoan(reader, firstKey, lastKey, runDate, (record, category) -> {
+                if (writeError[0] != null) return;
+                LocalDate end = record.getReturnDate() != null ? record.getReturnDate() : runDate;
+                int daysLate = (int) ChronoUnit.DAYS.between(record.getDueDate(), end);
+                pending.add(new Fine(record.getRecordId(), record.getUserId(), record.getBookId(), category,
+                        daysLate, rates.amountFor(category, daysLate), runDate));
+                progress.loans.incrementAndGet();
+                if (pending.size() == WRITE_CHUNK) {
+                    try {
+                        fineDao.upsertFines(pending, out);
+                        written[0] += pending.size();
+                        progress.fines.addAndGet(pending.size());
+                        pending.clear();
+                    } catch (SQLException e) {
+                        writeError[0] = e; // Keep draining the reader so its connection closes cleanly
+                    }
+                }
+            });
+            if (writeError[0] != null) {
+                throw writeError[0];
+            }
+            fineDao.upsertFines(pending, writer);
+            written[0] += pending.size();
+            progress.fines.addAndGet(pending.size());
+            fineDao.markPartitionFinished(runDate, firstKey, lastKey, loans, written[0], writer);
+            writer.commit();
+        } catch (SQLException e) {
+            if (writer != null) {
+                try { writer.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            }
+            throw e;
+        } finally {
+            DatabaseManager.closeQuietly(reader);
+            DatabaseManager.closeQuietly(writer);
+        }
+    }
+
+    private static class Progress {
+        final int totalPartitions;
+        final AtomicInteger partitionsDone;
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong loans = new AtomicLong();
+        final AtomicLong fines = new AtomicLong();
+        final long startNanos = System.nanoTime();
+
+        Progress(int totalPartitions, int alreadyDone) {
+            this.totalPartitions = totalPartitions;
+            this.partitionsDone = new AtomicInteger(alreadyDone);
+        }
+
+        void print() {
+            double seconds = Math.max(0.001, (System.nanoTime() - startNanos) / 1e9);
+            System.out.printf("Fines: %d/%d partitions (%d failed), %,d late loans, %,d fines written, %,.0f loans/s, %.0f s%n",
+                    partitionsDone.get(), totalPartitions, failed.get(), loans.get(), fines.get(), loans.get() / seconds, seconds);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.jobs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Late fee per day by book category, read from a properties file:
+ *
+ *   default=0.25        # Any category not listed (and books without one)
+ *   max=20.00           # Optional cap per loan
+ *   Reference=1.00      # One line per category that differs; escape spaces as "Science\ Fiction"
+ *
+ * A missing file means DEFAULT_DAILY_RATE for everything and no cap.
+ */
+public class FineRates {
+    public static final BigDecimal DEFAULT_DAILY_RATE = new BigDecimal("0.25");
+
+    private final BigDecimal defaultRate;
+    private final BigDecimal maxFine; // Null for no cap
+    private final Map<String, BigDecimal> categoryRates;
+
+    public FineRates(BigDecimal defaultRate, BigDecimal maxFine, Map<String, BigDecimal> categoryRates) {
+        this.defaultRate = defaultRate;
+        this.maxFine = maxFine;
+        this.categoryRates = new HashMap<>(categoryRates);
+    }
+
+    public static FineRates load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return new FineRates(DEFAULT_DAILY_RATE, null, Map.of());
+        }
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        BigDecimal defaultRate = DEFAULT_DAILY_RATE;
+        BigDecimal maxFine = null;
+        Map<String, BigDecimal> rates = new HashMap<>();
+        for (String key : props.stringPropertyNames()) {
+            BigDecimal value;
+            try {
+                value = new BigDecimal(props.getProperty(key).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid amount for '" + key + "' in " + file + ": " + props.getProperty(key));
+            }
+            if (value.signum() < 0) {
+                throw new IOException("Negative amount for '" + key + "' in " + file);
+            }
+            if ("default".equals(key)) {
+                defaultRate = value;
+            } else if ("max".equals(key)) {
+                maxFine = value;
+            } else {
+                rates.put(key, value);
+            }
+        }
+        return new FineRates(defaultRate, maxFine, rates);
+    }
+
+    public BigDecimal dailyRate(String category) {
+        return category != null ? categoryRates.getOrDefault(category, defaultRate) : defaultRate;
+    }
+
+    public BigDecimal amountFor(String category, int daysLate) {
+        BigDecimal amount = dailyRate(category).multiply(BigDecimal.valueOf(daysLate));
+        if (maxFine != null && amount.compareTo(maxFine) > 0) {
+            amount = maxFine;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return "default " + defaultRate + "/day" + (maxFine != null ? ", max " + maxFine : "") +
+                (categoryRates.isEmpty() ? "" : ", by category " + categoryRates);
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timers for very many far-apart deadlines (e.g. one per active loan) at constant cost per timer.
+ *
+ * Time is counted in ticks of tickMillis. Level 0 has one slot per tick; each level above has slots as wide as the
+ * whole level below, so with 2^bitsPerLevel slots per level a handful of levels reach years ahead. A timer goes into
+ * the lowest level whose range still covers its deadline. When the clock reaches the start of a higher-level slot,
+ * that slot's timers are spread into the levels below ("cascading"), and a level 0 slot fires when its tick comes.
+ *
+ * schedule() and Timeout.cancel() are O(1) (slots are intrusive doubly linked lists); advanceTo() costs one step per
+ * elapsed tick plus the timers that fire or move. Nothing runs on its own: the owner calls advanceTo() from its own
+ * clock thread and acts on the payloads it returns. All methods are thread-safe.
+ */
+public class HierarchicalTimingWheel<T> {
+    private static final int MAX_LEVELS = 8;
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final Slot<T>[][] levels; // Created on first use; most wheels never need the top levels
+    private final Slot<T> due = new Slot<>(); // Timers whose deadline had already passed when scheduled
+    private long currentTick;
+    private int size;
+
+    // Handle for a scheduled timer.
+    public static final class Timeout<T> {
+        private final HierarchicalTimingWheel<T> wheel;
+        private final long deadlineTick;
+        private final T payload;
+        private Slot<T> slot; // Null once fired or cancelled
+        private Timeout<T> prev, next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, long deadlineTick, T payload) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        // Returns false if the timer already fired or was cancelled before.
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (slot == null) {
+                    return false;
+                }
+                slot.remove(this);
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+
+    // A circular list with a sentinel, so add and remove never need to look at anything but their neighbours.
+    private static final class Slot<T> {
+        private final Timeout<T> head = new Timeout<>(null, 0, null);
+
+        Slot() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void add(Timeout<T> t) {
+            t.slot = this;
+            t.prev = head.prev;
+            t.next = head;
+            head.prev.next = t;
+            head.prev = t;
+        }
+
+        void remove(Timeout<T> t) {
+            t.prev.next = t.next;
+            t.next.prev = t.prev;
+            t.prev = t.next = null;
+            t.slot = null;
+        }
+
+        // Unlinks and returns every timer in the slot.
+        List<Timeout<T>> drain() {
+            List<Timeout<T>> drained = new ArrayList<>();
+            while (head.next != head) {
+                Timeout<T> t = head.next;
+                remove(t);
+                drained.add(t);
+            }
+            return drained;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int bitsPerLevel, long startMillis) {
+        if (tickMillis <= 0 || bitsPerLevel < 1 || bitsPerLevel > 16) {
+            throw new IllegalArgumentException("tickMillis must be positive and bitsPerLevel 1-16");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = bitsPerLevel;
+        this.mask = (1 << bitsPerLevel) - 1;
+        this.levels = new Slot[MAX_LEVELS][];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules payload for deadlineMillis (epoch millis, rounded down to a tick). A deadline that has already
+     * passed is returned by the next advanceTo(). Deadlines beyond the top level's range are rejected.
+     */
+    public synchronized Timeout<T> schedule(long deadlineMillis, T payload) {
+        Timeout<T> t = new Timeout<>(this, deadlineMillis / tickMillis, payload);
+        place(t);
+        size++;
+        return t;
+    }
+
+    /**
+     * Moves the clock forward to nowMillis and returns the payloads of every timer that came due, in deadline
+     * order (timers due on the same tick in no particular order). Moving backwards does nothing.
+     */
+    public synchronized List<T> advanceTo(long nowMillis) {
+        List<T> fired = new ArrayList<>();
+        collect(due.drain(), fired);
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // Highest level first: its timers may land in a lower slot that cascades in this same step
+            for (int level = MAX_LEVELS - 1; level >= 1; level--) {
+                if (levels[level] != null && (currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    for (Timeout<T> t : slotFor(level, currentTick).drain()) {
+                        place(t);
+                    }
+                }
+            }
+            if (levels[0] != null) {
+                collect(slotFor(0, currentTick).drain(), fired);
+            }
+            collect(due.drain(), fired); // Cascaded timers that were due exactly now
+        }
+        return fired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void collect(List<Timeout<T>> timeouts, List<T> fired) {
+        for (Timeout<T> t : timeouts) {
+            fired.add(t.payload);
+            size--;
+        }
+    }
+
+    // The lowest level where the deadline shares all higher-order digits with the clock will reach it before wrapping.
+    private void place(Timeout<T> t) {
+        if (t.deadlineTick <= currentTick) {
+            due.add(t);
+            return;
+        }
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            int shift = bits * (level + 1);
+            if (shift >= 63 || (t.deadlineTick >>> shift) == (currentTick >>> shift)) {
+                slotFor(level, t.deadlineTick).add(t);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Deadline too far in the future for this wheel");
+    }
+
+    private Slot<T> slotFor(int level, long tick) {
+        if (levels[level] == null) {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Slot<T>[] slots = new Slot[mask + 1];
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = new Slot<>();
+            }
+            levels[level] = slots;
+        }
+        return levels[level][(int) ((tick >>> (bits * level)) & mask)];
+    }
+}
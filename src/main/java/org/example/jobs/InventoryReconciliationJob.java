@@ -0,0 +1,176 @@
+package org.example.jobs;
+
+import org.example.dao.BookDao;
+import org.example.db.NamedLock;
+import org.example.model.InventoryDrift;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds books whose quantity has drifted from total_quantity minus their unreturned loans (see the "already at max
+ * upon return" warning in ClientHandler). The catalog is checked in book_key chunks of CHUNK_SIZE on a small thread
+ * pool; every discrepancy is appended to the report file as
+ *
+ *   checkedAt|bookId|quantity|expected|activeLoans|totalQuantity|action
+ *
+ * where action is REPORTED, REPAIRED, CHANGED (a borrow or return touched the book first; checked again next run)
+ * or OVER_LENT (more copies out than total_quantity, needs a person). With repair on, each book is fixed by one
+ * autocommitted UPDATE, so no lock is held beyond a single row for a single statement. Scheduled runs only happen on
+ * the instance holding a named lock, which it keeps until it stops; if it dies another instance takes over.
+ *
+ * Usage: InventoryReconciliationJob [--repair] [--parallelism N] [--report file]
+ */
+public class InventoryReconciliationJob {
+    public static final String DEFAULT_REPORT_FILE = "inventory-reconciliation.log";
+    private static final int CHUNK_SIZE = 5_000; // book_keys per chunk
+    private static final long INITIAL_DELAY_MINUTES = 10;
+    private static final long PERIOD_HOURS = 6;
+    private static final String LOCK_NAME = "library_inventory_reconciliation";
+
+    private final BookDao bookDao = new BookDao();
+    private final Path reportFile;
+    private final boolean repair;
+    private final int parallelism;
+    private final NamedLock lock = new NamedLock(LOCK_NAME);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "inventory-reconciliation");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public InventoryReconciliationJob(Path reportFile, boolean repair, int parallelism) {
+        this.reportFile = reportFile;
+        this.repair = repair;
+        this.parallelism = parallelism;
+    }
+
+    public static void main(String[] args) {
+        boolean repair = false;
+        int parallelism = 4;
+        Path report = Paths.get(DEFAULT_REPORT_FILE);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--repair": repair = true; break;
+                    case "--parallelism": parallelism = Integer.parseInt(args[++i]); break;
+                    case "--report": report = Paths.get(args[++i]); break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+            if (parallelism <= 0) throw new IllegalArgumentException("--parallelism");
+        } catch (RuntimeException e) {
+            System.err.println("Usage: InventoryReconciliationJob [--repair] [--parallelism N] [--report file]");
+            System.exit(2);
+        }
+        try {
+            new InventoryReconciliationJob(report, repair, parallelism).run();
+        } catch (Exception e) {
+            System.err.println("Inventory reconciliation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runScheduled, INITIAL_DELAY_MINUTES, PERIOD_HOURS * 60, TimeUnit.MINUTES);
+        System.out.println("Inventory reconciliation scheduled every " + PERIOD_HOURS + " hours" + (repair ? " (with repair)." : " (report only)."));
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+        lock.release();
+    }
+
+    private void runScheduled() {
+        if (!lock.tryAcquire()) {
+            System.out.println("Inventory reconciliation: running on another instance, skipped.");
+            return;
+        }
+        try {
+            run();
+        } catch (Exception e) {
+            System.err.println("Inventory reconciliation failed: " + e.getMessage()); // Tried again next period
+        }
+    }
+
+    // Checks (and with repair on, fixes) the whole catalog once. Returns the number of discrepancies found.
+    public int run() throws SQLException, IOException, InterruptedException {
+        int[] keys = bookDao.getBookKeyRange();
+        if (keys == null) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        List<Callable<List<String>>> chunks = new ArrayList<>();
+        for (int first = keys[0]; first <= keys[1]; first += CHUNK_SIZE) {
+            int chunkFirst = first;
+            int chunkLast = (int) Math.min((long) first + CHUNK_SIZE - 1, keys[1]);
+            chunks.add(() -> reconcileChunk(chunkFirst, chunkLast));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        List<String> lines = new ArrayList<>();
+        int failedChunks = 0;
+        try {
+            for (Future<List<String>> result : pool.invokeAll(chunks)) {
+                try {
+                    lines.addAll(result.get());
+                } catch (ExecutionException e) {
+                    failedChunks++; // The rest of the catalog is still worth reporting
+                    System.err.println("Inventory chunk failed: " + e.getCause().getMessage());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!lines.isEmpty()) {
+            try (BufferedWriter writer = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+        long repaired = lines.stream().filter(l -> l.endsWith("|REPAIRED")).count();
+        System.out.println("Inventory reconciliation: " + chunks.size() + " chunks (" + failedChunks + " failed), "
+                + lines.size() + " books with drifted quantity" + (repair ? ", " + repaired + " repaired" : "")
+                + " in " + (System.currentTimeMillis() - start) + " ms" + (lines.isEmpty() ? "." : "; see " + reportFile + "."));
+        return lines.size();
+    }
+
+    private List<String> reconcileChunk(int firstKey, int lastKey) throws SQLException {
+        List<String> lines = new ArrayList<>();
+        String checkedAt = LocalDateTime.now().toString();
+        for (InventoryDrift drift : bookDao.findQuantityDrift(firstKey, lastKey)) {
+            String action;
+            if (drift.isOverLent()) {
+                action = "OVER_LENT";
+            } else if (!repair) {
+                action = "REPORTED";
+            } else {
+                action = bookDao.repairQuantity(drift.getBookId(), drift.getQuantity()) ? "REPAIRED" : "CHANGED";
+            }
+            lines.add(String.join("|", checkedAt, drift.getBookId(), String.valueOf(drift.getQuantity()),
+                    String.valueOf(drift.getExpectedQuantity()), String.valueOf(drift.getActiveLoans()),
+                    String.valueOf(drift.getTotalQuantity()), action));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.jobs;
+
+import org.example.dao.BorrowRecordDao;
+import org.example.model.BorrowRecord;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the set of overdue loans (not returned, due date before today) in memory for the admin's overdue report.
+ *
+ * The first scan loads every overdue loan through the (return_date, due_date) index. After that each run only asks
+ * for loans whose due date fell in the days since the previous run, which is usually a handful of rows. Returns on
+ * this server remove their loan right away (loanReturned); a full rescan every FULL_RESCAN_EVERY runs drops loans
+ * that were returned some other way (another server, a manual fix in the database).
+ */
+public class OverdueScanner {
+    private static final long PERIOD_MINUTES = 15;
+    private static final int FULL_RESCAN_EVERY = 4 * 6; // Every six hours
+
+    // Most overdue first, which is also the report's order; (dueDate, recordId) is unique and doubles as the cursor
+    static final Comparator<BorrowRecord> ORDER =
+            Comparator.comparing(BorrowRecord::getDueDate).thenComparingInt(BorrowRecord::getRecordId);
+
+    private final BorrowRecordDao borrowRecordDao = new BorrowRecordDao();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "overdue-scanner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile OverdueSet overdue = new OverdueSet();
+    // Record IDs returned while a full rescan runs; the rescan may have read them before the return committed
+    private final Set<Integer> returnedDuringRescan = ConcurrentHashMap.newKeySet();
+    private volatile boolean rescanning = false;
+    private volatile LocalDate scannedBefore; // Loans due before this date have been loaded; null until the first scan
+    private int runs = 0;
+
+    // The skip list's size() walks every entry, so the set keeps its own count. A rescan swaps in a new
+    // OverdueSet, which keeps each map and its count together.
+    private static final class OverdueSet {
+        final ConcurrentSkipListMap<BorrowRecord, Boolean> loans = new ConcurrentSkipListMap<>(ORDER);
+        final AtomicInteger count = new AtomicInteger();
+
+        void add(BorrowRecord record) {
+            if (loans.put(record, Boolean.TRUE) == null) {
+                count.incrementAndGet();
+            }
+        }
+
+        void remove(BorrowRecord record) {
+            if (loans.remove(record) != null) {
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runScheduled, 0, PERIOD_MINUTES, TimeUnit.MINUTES);
+        System.out.println("Overdue scanner scheduled every " + PERIOD_MINUTES + " minutes.");
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void runScheduled() {
+        try {
+            scan(runs++ % FULL_RESCAN_EVERY == 0);
+        } catch (SQLException e) {
+            System.err.println("Error scanning for overdue loans: " + e.getMessage()); // Retried next run
+        }
+    }
+
+    /**
+     * Brings the overdue set up to date. A full rescan rebuilds it from the index; otherwise only loans that became
+     * overdue since the last scan are added.
+     */
+    synchronized void scan(boolean full) throws SQLException {
+        LocalDate today = LocalDate.now();
+        long start = System.currentTimeMillis();
+        if (full || scannedBefore == null) {
+            OverdueSet fresh = new OverdueSet();
+            returnedDuringRescan.clear();
+            rescanning = true;
+            try {
+                borrowRecordDao.forEachActiveLoan(null, today, fresh::add);
+                overdue = fresh;
+                for (Iterator<BorrowRecord> it = fresh.loans.keySet().iterator(); it.hasNext(); ) {
+                    BorrowRecord r = it.next();
+                    if (returnedDuringRescan.contains(r.getRecordId())) {
+                        fresh.remove(r);
+                    }
+                }
+            } finally {
+                rescanning = false;
+            }
+            scannedBefore = today;
+            System.out.println("Overdue scan (full): " + fresh.count.get() + " overdue loans in "
+                    + (System.currentTimeMillis() - start) + " ms.");
+        } else if (today.isAfter(scannedBefore)) {
+            int[] added = {0};
+            OverdueSet current = overdue;
+            borrowRecordDao.forEachActiveLoan(scannedBefore, today, r -> {
+                current.add(r);
+                added[0]++;
+            });
+            scannedBefore = today;
+            System.out.println("Overdue scan: " + added[0] + " newly overdue loans, " + current.count.get() + " in total.");
+        }
+    }
+
+    // Called after a return commits, so the loan disappears from the report without waiting for a rescan.
+    public void loanReturned(BorrowRecord record) {
+        if (rescanning) {
+            returnedDuringRescan.add(record.getRecordId());
+        }
+        overdue.remove(record);
+    }
+
+    /**
+     * Up to limit overdue loans, most overdue first, starting after the loan identified by (afterDueDate,
+     * afterRecordId); pass a null date for the first page. Loads the set first if no scan has finished yet.
+     */
+    public List<BorrowRecord> page(LocalDate afterDueDate, int afterRecordId, int limit) throws SQLException {
+        if (scannedBefore == null) {
+            scan(true);
+        }
+        ConcurrentSkipListMap<BorrowRecord, Boolean> loans = overdue.loans;
+        Map<BorrowRecord, Boolean> view = loans;
+        if (afterDueDate != null) {
+            BorrowRecord after = new BorrowRecord(afterRecordId, null, null, null, afterDueDate, null);
+            view = loans.tailMap(after, false);
+        }
+        List<BorrowRecord> records = new ArrayList<>(); // Not presized: size() of a skip list view walks it
+        for (BorrowRecord r : view.keySet()) {
+            if (records.size() == limit) break;
+            records.add(r);
+        }
+        return records;
+    }
+
+    public int size() {
+        return overdue.count.get();
+    }
+
+    // The day the set was last brought up to date, or null if it has not been loaded yet.
+    public LocalDate getScannedOn() {
+        return scannedBefore;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.jobs;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Hands reminders to another thread in this process. When the consumer falls behind, new reminders are dropped.
+public class QueueReminderSink implements ReminderSink {
+    private final BlockingQueue<Reminder> queue;
+
+    public QueueReminderSink(int capacity) {
+        this.queue = new LinkedBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void deliver(Reminder reminder) {
+        if (!queue.offer(reminder)) {
+            System.err.println("Reminder queue full, dropped: " + reminder);
+        }
+    }
+
+    public BlockingQueue<Reminder> getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.jobs;
+
+import java.time.LocalDate;
+
+// A reminder about one loan, produced by DueDateReminderService.
+public class Reminder {
+    public enum Type {
+        DUE_SOON, // The due date is close
+        OVERDUE   // The due date has passed and the book is still out
+    }
+
+    private final Type type;
+    private final int recordId;
+    private final String userId;
+    private final String bookId;
+    private final LocalDate dueDate;
+
+    public Reminder(Type type, int recordId, String userId, String bookId, LocalDate dueDate) {
+        this.type = type;
+        this.recordId = recordId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.dueDate = dueDate;
+    }
+
+    public Type getType() { return type; }
+    public int getRecordId() { return recordId; }
+    public String getUserId() { return userId; }
+    public String getBookId() { return bookId; }
+    public LocalDate getDueDate() { return dueDate; }
+
+    @Override
+    public String toString() {
+        return type + "|" + recordId + "|" + userId + "|" + bookId + "|" + dueDate;
+    }
+}
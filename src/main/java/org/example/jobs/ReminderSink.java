@@ -0,0 +1,9 @@
+package org.example.jobs;
+
+// Where reminders go. Implementations must be quick (they run on the reminder clock thread) and thread-safe.
+public interface ReminderSink {
+    void deliver(Reminder reminder);
+
+    // Called once when the reminder service stops.
+    default void close() {}
+}
@@ -0,0 +1,32 @@
+package org.example.model;
+
+import java.time.LocalDate;
+
+// Filters for the admin's paged borrow record list. Null/false means "don't filter on this".
+public class BorrowRecordQuery {
+    public static final BorrowRecordQuery ALL = new BorrowRecordQuery(null, null, null, null, false, false);
+
+    private final String userId;
+    private final String bookId;
+    private final LocalDate fromDate; // Inclusive, on borrow_date
+    private final LocalDate toDate;   // Inclusive, on borrow_date
+    private final boolean activeOnly;  // Not returned yet
+    private final boolean overdueOnly; // Not returned and past the due date
+
+    public BorrowRecordQuery(String userId, String bookId, LocalDate fromDate, LocalDate toDate,
+                             boolean activeOnly, boolean overdueOnly) {
+        this.userId = userId == null || userId.trim().isEmpty() ? null : userId.trim();
+        this.bookId = bookId == null || bookId.trim().isEmpty() ? null : bookId.trim();
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.activeOnly = activeOnly;
+        this.overdueOnly = overdueOnly;
+    }
+
+    public String getUserId() { return userId; }
+    public String getBookId() { return bookId; }
+    public LocalDate getFromDate() { return fromDate; }
+    public LocalDate getToDate() { return toDate; }
+    public boolean isActiveOnly() { return activeOnly; }
+    public boolean isOverdueOnly() { return overdueOnly; }
+}
@@ -0,0 +1,33 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Late fee for one loan, as assessed by the nightly fine job. Final once the book is returned.
+public class Fine {
+    private final int recordId;
+    private final String userId;
+    private final String bookId;
+    private final String category;
+    private final int daysLate;
+    private final BigDecimal amount;
+    private final LocalDate assessedOn;
+
+    public Fine(int recordId, String userId, String bookId, String category, int daysLate, BigDecimal amount, LocalDate assessedOn) {
+        this.recordId = recordId;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.category = category;
+        this.daysLate = daysLate;
+        this.amount = amount;
+        this.assessedOn = assessedOn;
+    }
+
+    public int getRecordId() { return recordId; }
+    public String getUserId() { return userId; }
+    public String getBookId() { return bookId; }
+    public String getCategory() { return category; }
+    public int getDaysLate() { return daysLate; }
+    public BigDecimal getAmount() { return amount; }
+    public LocalDate getAssessedOn() { return assessedOn; }
+}
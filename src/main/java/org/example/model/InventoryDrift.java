@@ -0,0 +1,30 @@
+package org.example.model;
+
+// A book whose available quantity does not match its total minus the copies currently on loan.
+public class InventoryDrift {
+    private final String bookId;
+    private final int quantity;      // What books.quantity says
+    private final int totalQuantity;
+    private final int activeLoans;   // Unreturned borrow records for the book
+
+    public InventoryDrift(String bookId, int quantity, int totalQuantity, int activeLoans) {
+        this.bookId = bookId;
+        this.quantity = quantity;
+        this.totalQuantity = totalQuantity;
+        this.activeLoans = activeLoans;
+    }
+
+    public String getBookId() { return bookId; }
+    public int getQuantity() { return quantity; }
+    public int getTotalQuantity() { return totalQuantity; }
+    public int getActiveLoans() { return activeLoans; }
+
+    public int getExpectedQuantity() {
+        return totalQuantity - activeLoans;
+    }
+
+    // More copies out than the book has at all: total_quantity itself is wrong, which no recount can fix.
+    public boolean isOverLent() {
+        return activeLoans > totalQuantity;
+    }
+}
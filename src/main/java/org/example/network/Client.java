@@ -65,8 +65,12 @@ public class Client {
         }
     }
 
-    // Example main method for a simple command-line client
+    // Example main method for a simple command-line client.
+    // Batch mode: --script <file|-> [--out <file|->] [--window N] [--connections N] [--host H] [--port P]
     public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(runScript(args) ? 0 : 1);
+        }
         Client client = new Client("localhost", 12345);
         if (!client.connect()) {
             return;
@@ -103,4 +107,42 @@ public class Client {
         client.disconnect();
         scanner.close();
     }
+
+    private static boolean runScript(String[] args) {
+        String script = null;
+        String out = "-";
+        String host = "localhost";
+        int port = 12345;
+        int window = ScriptRunner.DEFAULT_WINDOW;
+        int connections = 1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--script": script = value; i++; break;
+                    case "--out": out = value; i++; break;
+                    case "--window": window = Integer.parseInt(value); i++; break;
+                    case "--connections": connections = Integer.parseInt(value); i++; break;
+                    case "--host": host = value; i++; break;
+                    case "--port": port = Integer.parseInt(value); i++; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            return false;
+        }
+        if (script == null || out == null || host == null) {
+            System.err.println("Usage: --script <file|-> [--out <file|->] [--window N] [--connections N] [--host H] [--port P]");
+            return false;
+        }
+        try {
+            return new ScriptRunner(host, port, window, connections).run(script, out);
+        } catch (IOException e) {
+            System.err.println("Script failed: " + e.getMessage());
+            return false;
+        }
+    }
 }
@@ -4,7 +4,10 @@ import org.example.model.User; // For future use with actual authentication
 
 import org.example.dao.BookDao;
 import org.example.dao.BorrowRecordDao;
+import org.example.dao.SessionDao;
 import org.example.dao.UserDao;
+import org.example.jobs.DueDateReminderService;
+import org.example.jobs.OverdueScanner;
 import org.example.db.DatabaseManager;
 import org.example.model.*;
 import org.example.util.PasswordUtil;
@@ -25,44 +28,85 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 public class ClientHandler implements Runnable {
+    private static final int MAX_BATCH_SIZE = 32;
+    private static final int MAX_BULK_ROWS = 100_000; // Rows per ADD_BOOKS/UPDATE_BOOKS request
+    private static final int MAX_RECORDS_PAGE = 500;  // Rows per VIEW_ALL_BORROWING_RECORDS page
+    // A session token stays resumable this long after login or its last resume
+    private static final long SESSION_TTL_MILLIS = TimeUnit.HOURS.toMillis(12);
+    private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
+
     private final Socket clientSocket;
+    private final ExecutorService requestWorkers; // Shared pool for parallel BATCH sub-requests
+    private final IdempotencyCache idempotencyCache; // Server-wide; replays BORROW_BOOK/RETURN_BOOK retries
+    private final OverdueScanner overdueScanner; // Server-wide overdue set behind GET_OVERDUE_LOANS
+    private final DueDateReminderService reminderService; // Told about every borrow and return
     private final UserDao userDao;
     private final BookDao bookDao;
     private final BorrowRecordDao borrowRecordDao;
-    private User loggedInUser;
-
-    public ClientHandler(Socket socket) {
+    private final SessionDao sessionDao;
+    private volatile User loggedInUser;
+    private volatile String sessionTokenHash; // Session of loggedInUser; revoked on LOGOUT but kept when the connection drops
+    private final FrameCodec codec = new FrameCodec(); // Compression state for this connection only
+    private boolean compressionAccepted = false; // Set by HELLO, applied after the HELLO response is sent
+    private PrintWriter connectionWriter;
+
+    public ClientHandler(Socket socket, ExecutorService requestWorkers, IdempotencyCache idempotencyCache,
+                         OverdueScanner overdueScanner, DueDateReminderService reminderService) {
         this.clientSocket = socket;
+        this.requestWorkers = requestWorkers;
+        this.idempotencyCache = idempotencyCache;
+        this.overdueScanner = overdueScanner;
+        this.reminderService = reminderService;
         this.userDao = new UserDao();
         this.bookDao = new BookDao();
         this.borrowRecordDao = new BorrowRecordDao();
+        this.sessionDao = new SessionDao();
     }
 
     @Override
     public void run() {
         System.out.println("Client connected: " + clientSocket.getInetAddress().getHostAddress() + ":" + clientSocket.getPort());
         try (
-                BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true)
+                BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
+                // Buffered so streamed list responses are written to the socket in large chunks rather than per row
+                PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8)), true)
         ) {
+            connectionWriter = writer;
             String clientRequest;
             while ((clientRequest = reader.readLine()) != null) {
-                System.out.println("Received from " + clientSocket.getPort() + ": " + clientRequest);
-                String response = processRequest(clientRequest);
-                writer.println(response);
-                System.out.println("Sent to " + clientSocket.getPort() + ": " + response);
+                System.out.println("Received from " + clientSocket.getPort() + ": " + abbreviate(clientRequest));
+                String response = processRequest(clientRequest, writer);
+                if (response != null) { // null means the handler already streamed its response
+                    writer.println(codec.encode(response));
+                    System.out.println("Sent to " + clientSocket.getPort() + ": " + abbreviate(response));
+                }
+                if (compressionAccepted && !codec.isCompressionEnabled()) {
+                    codec.enableCompression(FrameCodec.DEFAULT_THRESHOLD);
+                }
 
                 if (clientRequest.startsWith(RequestType.TERMINATE_CONNECTION.name())) {
                     break;
@@ -80,7 +124,7 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    private String processRequest(String requestString) {
+    private String processRequest(String requestString, PrintWriter writer) {
         String[] parts = requestString.split("::", -1);
         if (parts.length == 0) {
             return "ERROR::INVALID_REQUEST_FORMAT";
@@ -105,32 +149,42 @@ public class ClientHandler implements Runnable {
 
         try {
             switch (requestType) {
+                case HELLO:
+                    return handleHello(args);
+                case BATCH:
+                    return handleBatch(args);
                 case PING:
                     return "SUCCESS::PONG";
                 case LOGIN:
                     return handleLogin(args);
+                case RESUME_SESSION:
+                    return handleResumeSession(args);
                 case REGISTER:
                     return handleRegister(args);
                 case LOGOUT:
                     return handleLogout();
 
                 case GET_ALL_BOOKS:
-                    return handleGetAllBooks();
+                    return handleGetAllBooks(writer);
                 case SEARCH_BOOK:
                     return handleSearchBook(args);
                 case GET_BOOK_BY_ID:
                     return handleGetBookById(args);
+                case GET_BOOKS_BY_IDS:
+                    return handleGetBooksByIds(args);
 
                 case BORROW_BOOK:
-                    return handleBorrowBook(args);
+                    return withIdempotencyKey(requestType, args, 1, this::handleBorrowBook);
                 case RETURN_BOOK:
-                    return handleReturnBook(args);
+                    return withIdempotencyKey(requestType, args, 1, this::handleReturnBook);
                 case VIEW_MY_BORROWING_RECORDS:
                     return handleViewMyBorrowingRecords();
                 case GET_MY_OVERDUE_BOOKS:
                     return handleGetMyOverdueBooks();
                 case GET_MY_RECOMMENDATIONS:
                     return handleGetMyRecommendations(args);
+                case GET_USER_DASHBOARD:
+                    return handleGetUserDashboard(args, writer);
 
 
                 case ADD_BOOK:
@@ -139,8 +193,16 @@ public class ClientHandler implements Runnable {
                     return handleUpdateBook(args);
                 case DELETE_BOOK:
                     return handleDeleteBook(args);
+                case ADD_BOOKS:
+                    return handleBulkBooks(args, true);
+                case UPDATE_BOOKS:
+                    return handleBulkBooks(args, false);
                 case VIEW_ALL_BORROWING_RECORDS:
-                    return handleViewAllBorrowingRecords();
+                    return args.length == 0 ? handleViewAllBorrowingRecords(writer) : handleBorrowRecordsPage(args);
+                case EXPORT_BORROW_RECORDS:
+                    return handleExportBorrowRecords(args, writer);
+                case GET_OVERDUE_LOANS:
+                    return handleGetOverdueLoans(args);
                 case GET_POPULAR_BOOKS:
                     return handleGetPopularBooks(args);
                 case GET_TRENDING_BOOKS:
@@ -148,12 +210,12 @@ public class ClientHandler implements Runnable {
 
 
                 case GET_ALL_USERS:
-                    return handleGetAllUsers();
+                    return handleGetAllUsers(writer);
                 case UPDATE_USER_STATUS:
                     return handleUpdateUserStatus(args);
 
                 case TERMINATE_CONNECTION:
-                    this.loggedInUser = null;
+                    endSession();
                     return "SUCCESS::CONNECTION_TERMINATED";
                 default:
                     return "INFO::REQUEST_RECEIVED::" + requestType.name() + "::" + String.join(":", args);
@@ -165,6 +227,109 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    private String handleHello(String[] args) {
+        // HELLO::DEFLATE,... Only DEFLATE is offered; anything else falls back to uncompressed frames.
+        boolean clientOffersDeflate = args.length > 0 && Arrays.stream(args[0].split(","))
+                .map(String::trim)
+                .anyMatch(FrameCodec.DEFLATE::equalsIgnoreCase);
+        if (clientOffersDeflate) {
+            compressionAccepted = true;
+            return "SUCCESS::HELLO::" + FrameCodec.DEFLATE + "::" + FrameCodec.DEFAULT_THRESHOLD;
+        }
+        return "SUCCESS::HELLO::" + FrameCodec.NONE;
+    }
+
+    private String handleBatch(String[] args) {
+        // BATCH::base64(request)::base64(request)...
+        // Consecutive read-only sub-requests run in parallel on the worker pool; anything that changes state runs
+        // on its own, in order, so the results match what sending the requests one by one would have produced.
+        if (args.length == 0 || args.length > MAX_BATCH_SIZE) {
+            return "ERROR::BATCH_INVALID_ARGS::Expected 1 to " + MAX_BATCH_SIZE + " sub-requests.";
+        }
+        String[] subRequests = new String[args.length];
+        try {
+            for (int i = 0; i < args.length; i++) {
+                subRequests[i] = new String(Base64.getDecoder().decode(args[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            return "ERROR::BATCH_INVALID_ARGS::Sub-requests must be Base64 encoded.";
+        }
+
+        String[] results = new String[subRequests.length];
+        int i = 0;
+        while (i < subRequests.length) {
+            int runEnd = i;
+            while (runEnd < subRequests.length && isReadOnlyRequest(subRequests[runEnd])) {
+                runEnd++;
+            }
+            if (runEnd - i > 1) {
+                List<Future<String>> futures = new ArrayList<>();
+                for (int k = i; k < runEnd; k++) {
+                    String subRequest = subRequests[k];
+                    futures.add(requestWorkers.submit(() -> processSubRequest(subRequest)));
+                }
+                for (int k = i; k < runEnd; k++) {
+                    try {
+                        results[k] = futures.get(k - i).get();
+                    } catch (ExecutionException e) {
+                        results[k] = "ERROR::INTERNAL_SERVER_ERROR::" + e.getCause().getMessage();
+                    } catch (InterruptedException e) {
+                        futures.forEach(f -> f.cancel(true));
+                        Thread.currentThread().interrupt(); // The server is shutting down; let the handler loop see it
+                        return "ERROR::INTERNAL_SERVER_ERROR::Server is shutting down.";
+                    }
+                }
+                i = runEnd;
+            } else {
+                results[i] = processSubRequest(subRequests[i]);
+                i++;
+            }
+        }
+
+        String encoded = Arrays.stream(results)
+                .map(r -> Base64.getEncoder().encodeToString(r.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining(";"));
+        return "SUCCESS::BATCH_RESULTS::" + encoded;
+    }
+
+    private boolean isReadOnlyRequest(String request) {
+        String typeName = request.split("::", 2)[0];
+        try {
+            return RequestType.valueOf(typeName.toUpperCase()).isReadOnly();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Runs one request of a batch and returns its response line.
+    private String processSubRequest(String request) {
+        String typeName = request.split("::", 2)[0].toUpperCase();
+        if (typeName.equals(RequestType.BATCH.name()) || typeName.equals(RequestType.HELLO.name())
+                || typeName.equals(RequestType.TERMINATE_CONNECTION.name())
+                || typeName.equals(RequestType.EXPORT_BORROW_RECORDS.name()) // Multi-line response
+                || isUnboundedList(request)) {
+            return "ERROR::BATCH_UNSUPPORTED_SUB_REQUEST::" + typeName;
+        }
+        String response = processRequest(request, null); // Only the unbounded lists stream, and they are excluded above
+        return response != null ? response : "ERROR::INTERNAL_SERVER_ERROR::Streamed response inside BATCH.";
+    }
+
+    // Whole-table lists are streamed to the socket row by row. Inside a BATCH they would have to be held in memory,
+    // Base64-encoded, until the whole batch is done, so they have to be sent on their own.
+    private static boolean isUnboundedList(String request) {
+        String[] parts = request.split("::", -1);
+        String typeName = parts[0].toUpperCase();
+        return typeName.equals(RequestType.GET_ALL_BOOKS.name())
+                || typeName.equals(RequestType.GET_ALL_USERS.name())
+                || typeName.equals(RequestType.GET_USER_DASHBOARD.name())
+                || (typeName.equals(RequestType.VIEW_ALL_BORROWING_RECORDS.name()) && parts.length == 1); // Not the paged form
+    }
+
+    // Streamed responses are only compressed when they go straight to this connection's socket.
+    private StreamingResponse openListResponse(PrintWriter writer, String header, String emptyResponse) {
+        return new StreamingResponse(writer, writer == connectionWriter ? codec : null, header, emptyResponse);
+    }
+
     private boolean requiresLogin(RequestType type) {
         switch (type) {
             case LOGOUT:
@@ -172,22 +337,28 @@ public class ClientHandler implements Runnable {
             case GET_ALL_BOOKS:
             case SEARCH_BOOK:
             case GET_BOOK_BY_ID:
+            case GET_BOOKS_BY_IDS:
             case BORROW_BOOK:
             case RETURN_BOOK:
             case VIEW_MY_BORROWING_RECORDS:
             case GET_MY_OVERDUE_BOOKS:
             case GET_MY_RECOMMENDATIONS:
+            case GET_USER_DASHBOARD:
                 // Admin specific commands are implicitly login-required too
             case ADD_BOOK:
             case UPDATE_BOOK:
             case DELETE_BOOK:
+            case ADD_BOOKS:
+            case UPDATE_BOOKS:
             case VIEW_ALL_BORROWING_RECORDS:
+            case EXPORT_BORROW_RECORDS:
+            case GET_OVERDUE_LOANS:
             case GET_ALL_USERS:
             case UPDATE_USER_STATUS:
             case GET_POPULAR_BOOKS:
             case GET_TRENDING_BOOKS:
                 return true;
-            default: // PING, LOGIN, REGISTER, TERMINATE_CONNECTION do not require prior login
+            default: // PING, LOGIN, RESUME_SESSION, REGISTER, TERMINATE_CONNECTION do not require prior login
                 return false;
         }
     }
@@ -197,7 +368,11 @@ public class ClientHandler implements Runnable {
             case ADD_BOOK:
             case UPDATE_BOOK:
             case DELETE_BOOK:
+            case ADD_BOOKS:
+            case UPDATE_BOOKS:
             case VIEW_ALL_BORROWING_RECORDS:
+            case EXPORT_BORROW_RECORDS:
+            case GET_OVERDUE_LOANS:
             case GET_ALL_USERS:
             case UPDATE_USER_STATUS:
             case GET_POPULAR_BOOKS:
@@ -222,13 +397,78 @@ public class ClientHandler implements Runnable {
                 return "FAILURE::LOGIN_FAILED::Account is inactive.";
             }
             if (PasswordUtil.verifyPassword(plainPassword, user.getPasswordHash())) {
+                endSession(); // A new login on this connection replaces the previous session
                 this.loggedInUser = user;
-                return "SUCCESS::LOGIN_SUCCESSFUL::" + user.getRole().name() + "::" + user.getUserId() + "::Welcome " + user.getUsername();
+                return "SUCCESS::LOGIN_SUCCESSFUL::" + user.getRole().name() + "::" + user.getUserId() + "::Welcome " + user.getUsername()
+                        + "::" + issueSessionToken(user);
             }
         }
         return "FAILURE::LOGIN_FAILED::Invalid username or password.";
     }
 
+    // Logs a reconnecting client back in with the token it got from LOGIN. Answers like LOGIN.
+    private String handleResumeSession(String[] args) {
+        if (args.length != 1 || args[0].isEmpty()) return "ERROR::RESUME_SESSION_INVALID_ARGS::Expected sessionToken";
+        String tokenHash = PasswordUtil.hashPassword(args[0]); // Plain SHA-256 is enough for a random 256-bit token
+        long now = System.currentTimeMillis();
+        Optional<User> userOpt;
+        try {
+            Optional<String> userId = sessionDao.findUserId(tokenHash, now);
+            userOpt = userId.isPresent() ? userDao.getUserByUserId(userId.get()) : Optional.empty();
+            if (userOpt.isPresent() && userOpt.get().isActive()) {
+                sessionDao.extendSession(tokenHash, now + SESSION_TTL_MILLIS);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error resuming session: " + e.getMessage());
+            return "ERROR::INTERNAL_SERVER_ERROR::Could not resume session.";
+        }
+        if (!userOpt.isPresent()) {
+            return "FAILURE::LOGIN_FAILED::Session expired, please log in again.";
+        }
+        User user = userOpt.get();
+        if (!user.isActive()) {
+            return "FAILURE::LOGIN_FAILED::Account is inactive.";
+        }
+        endSession();
+        this.loggedInUser = user;
+        this.sessionTokenHash = tokenHash;
+        return "SUCCESS::LOGIN_SUCCESSFUL::" + user.getRole().name() + "::" + user.getUserId() + "::Welcome back " + user.getUsername()
+                + "::" + args[0];
+    }
+
+    // Returns the new token, or an empty string if it could not be stored (the login itself still succeeds,
+    // the client just cannot resume it).
+    private String issueSessionToken(User user) {
+        byte[] bytes = new byte[32];
+        TOKEN_RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String tokenHash = PasswordUtil.hashPassword(token);
+        long now = System.currentTimeMillis();
+        try {
+            sessionDao.deleteExpired(now);
+            sessionDao.createSession(tokenHash, user.getUserId(), now + SESSION_TTL_MILLIS);
+        } catch (SQLException e) {
+            System.err.println("Error creating session for " + user.getUsername() + ": " + e.getMessage());
+            return "";
+        }
+        this.sessionTokenHash = tokenHash;
+        return token;
+    }
+
+    // Logs this connection out and revokes its session token. A connection that merely drops keeps the token
+    // so the client can resume.
+    private void endSession() {
+        this.loggedInUser = null;
+        if (sessionTokenHash != null) {
+            try {
+                sessionDao.deleteSession(sessionTokenHash);
+            } catch (SQLException e) {
+                System.err.println("Error revoking session: " + e.getMessage()); // It still expires on its own
+            }
+            sessionTokenHash = null;
+        }
+    }
+
     private String handleRegister(String[] args) {
         if (args.length != 2) return "ERROR::REGISTER_INVALID_ARGS::Expected username::password";
         String username = args[0];
@@ -255,7 +495,7 @@ public class ClientHandler implements Runnable {
     private String handleLogout() {
         if (loggedInUser != null) {
             String username = loggedInUser.getUsername();
-            this.loggedInUser = null;
+            endSession();
             return "SUCCESS::LOGOUT_SUCCESSFUL::User " + username + " logged out.";
         }
         return "INFO::LOGOUT::No user was logged in.";
@@ -265,13 +505,27 @@ public class ClientHandler implements Runnable {
         return String.join("|", b.getBookId(), b.getTitle(), b.getAuthor(), b.getCategory(), String.valueOf(b.getQuantity()), String.valueOf(b.getTotalQuantity()));
     }
 
-    private String handleGetAllBooks() {
-        List<Book> books = bookDao.getAllBooks();
-        if (books.isEmpty()) return "SUCCESS::NO_BOOKS_FOUND";
-        String bookListStr = books.stream()
-                .map(this::formatBookToString)
-                .collect(Collectors.joining(";"));
-        return "SUCCESS::BOOK_LIST::" + bookListStr;
+    private String handleGetAllBooks(PrintWriter writer) {
+        StreamingResponse response = openListResponse(writer, "SUCCESS::BOOK_LIST::", "SUCCESS::NO_BOOKS_FOUND");
+        try {
+            bookDao.forEachBook(b -> response.writeRow(formatBookToString(b)));
+            response.finish();
+        } catch (SQLException e) {
+            System.err.println("Error streaming all books: " + e.getMessage());
+            response.fail("ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage());
+        }
+        logStreamed(response);
+        return null;
+    }
+
+    // Bulk requests and their responses can be megabytes long; only log the start of them
+    private static String abbreviate(String line) {
+        line = ProtocolLog.redact(line);
+        return line.length() <= 500 ? line : line.substring(0, 500) + "... (" + line.length() + " chars)";
+    }
+
+    private void logStreamed(StreamingResponse response) {
+        System.out.println("Streamed to " + clientSocket.getPort() + ": " + response.getHeader() + " (" + response.getRowCount() + " rows)");
     }
 
     private String handleSearchBook(String[] args) {
@@ -300,6 +554,34 @@ public class ClientHandler implements Runnable {
         return "FAILURE::BOOK_NOT_FOUND::" + bookId;
     }
 
+    private String handleGetBooksByIds(String[] args) {
+        if (args.length != 1) return "ERROR::GET_BOOKS_BY_IDS_INVALID_ARGS::Expected bookId;bookId;...";
+        List<String> bookIds = Arrays.stream(args[0].split(";"))
+                .filter(id -> !id.isEmpty())
+                .collect(Collectors.toList());
+        Map<String, Book> books = bookDao.getBooksByIds(bookIds);
+        if (books.isEmpty()) return "SUCCESS::NO_BOOKS_FOUND";
+        String bookListStr = books.values().stream()
+                .map(this::formatBookToString)
+                .collect(Collectors.joining(";"));
+        return "SUCCESS::BOOK_LIST_BY_IDS::" + bookListStr;
+    }
+
+    // An optional last argument is a client-generated idempotency key. Requests that carry one run at most once per
+    // user and key; a retry gets the original response. Without a key the request is handled as before.
+    private String withIdempotencyKey(RequestType requestType, String[] args, int argCount, Function<String[], String> handler) {
+        if (args.length != argCount + 1) {
+            return handler.apply(args);
+        }
+        String key = args[argCount];
+        if (!IdempotencyCache.isValidKey(key)) {
+            return "ERROR::INVALID_IDEMPOTENCY_KEY::Expected 1-64 letters, digits, '-' or '_'.";
+        }
+        String[] requestArgs = Arrays.copyOf(args, argCount);
+        String scopedKey = loggedInUser.getUserId() + "|" + requestType.name() + "|" + key;
+        return idempotencyCache.execute(scopedKey, () -> handler.apply(requestArgs));
+    }
+
     private String handleBorrowBook(String[] args) {
         if (args.length != 1) return "ERROR::BORROW_BOOK_INVALID_ARGS::Expected bookId";
         String bookId = args[0];
@@ -340,6 +622,7 @@ public class ClientHandler implements Runnable {
             record.setRecordId(recordId);
 
             conn.commit();
+            reminderService.loanBorrowed(record);
             return "SUCCESS::BORROW_SUCCESSFUL::Book '" + book.getTitle() + "' borrowed. Due: " + dueDate.toString();
 
         } catch (SQLException e) {
@@ -394,6 +677,8 @@ public class ClientHandler implements Runnable {
             }
 
             conn.commit();
+            overdueScanner.loanReturned(record);
+            reminderService.loanReturned(record);
             return "SUCCESS::RETURN_SUCCESSFUL::Book '" + bookOpt.get().getTitle() + "' returned.";
 
         } catch (SQLException e) {
@@ -428,10 +713,7 @@ public class ClientHandler implements Runnable {
     }
 
     private String handleGetMyOverdueBooks() {
-        List<BorrowRecord> records = borrowRecordDao.getBorrowRecordsByUserId(loggedInUser.getUserId());
-        List<BorrowRecord> overdueRecords = records.stream()
-                .filter(BorrowRecord::isOverdue)
-                .collect(Collectors.toList());
+        List<BorrowRecord> overdueRecords = borrowRecordDao.getOverdueBorrowRecordsByUserId(loggedInUser.getUserId());
         if (overdueRecords.isEmpty()) return "SUCCESS::NO_OVERDUE_BOOKS";
         String recordsStr = overdueRecords.stream().map(this::formatBorrowRecord).collect(Collectors.joining(";"));
         return "SUCCESS::MY_OVERDUE_BOOKS::" + recordsStr;
@@ -448,49 +730,85 @@ public class ClientHandler implements Runnable {
             return "ERROR::RECOMMENDATIONS_INVALID_ARGS::Limit must be a positive integer.";
         }
 
-        // 1. Get user's recently borrowed books to find preferred categories
         List<BorrowRecord> userBorrows = borrowRecordDao.getBorrowRecordsByUserId(loggedInUser.getUserId());
+        List<Book> recommendedBooks = recommendBooks(userBorrows, limit);
+        if (recommendedBooks.isEmpty()) {
+            return userBorrows.isEmpty() ? "SUCCESS::NO_RECOMMENDATIONS_AVAILABLE" : "SUCCESS::NO_NEW_RECOMMENDATIONS_IN_PREFERRED_CATEGORIES";
+        }
+
+        String recommendationsStr = recommendedBooks.stream()
+                .map(this::formatBookToString)
+                .collect(Collectors.joining(";"));
+        return "SUCCESS::RECOMMENDATIONS::" + recommendationsStr;
+    }
+
+    // Works purely from the user's already-loaded borrow history (newest first), so callers that need the
+    // history for other purposes do not query borrow_records again.
+    private List<Book> recommendBooks(List<BorrowRecord> userBorrows, int limit) {
+        Set<String> borrowedBookIds = userBorrows.stream()
+                .map(BorrowRecord::getBookId)
+                .collect(Collectors.toSet());
+
         if (userBorrows.isEmpty()) {
             // If no borrow history, recommend globally popular books not borrowed by user
-            Set<String> borrowedBookIds = borrowRecordDao.getBorrowedBookIdsByUserId(loggedInUser.getUserId());
-            List<Book> popularBooks = bookDao.getAllBooks().stream()
+            return bookDao.getAllBooks().stream()
                     .filter(b -> !borrowedBookIds.contains(b.getBookId()) && b.getQuantity() > 0)
                     .sorted(Comparator.comparingInt(Book::getTotalQuantity).reversed()) // Simple popularity
                     .limit(limit)
                     .collect(Collectors.toList());
-            if (popularBooks.isEmpty()) return "SUCCESS::NO_RECOMMENDATIONS_AVAILABLE";
-            String booksStr = popularBooks.stream().map(this::formatBookToString).collect(Collectors.joining(";"));
-            return "SUCCESS::RECOMMENDATIONS::" + booksStr;
         }
 
-        Set<String> preferredCategories = userBorrows.stream()
+        List<String> recentBookIds = userBorrows.stream()
                 .limit(10) // Consider last 10 borrowed books for category preference
                 .map(BorrowRecord::getBookId)
-                .map(bookDao::getBookById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+                .collect(Collectors.toList());
+        Set<String> preferredCategories = bookDao.getBooksByIds(recentBookIds).values().stream()
                 .map(Book::getCategory)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
         if (preferredCategories.isEmpty()) {
-            return "SUCCESS::NO_RECOMMENDATIONS_AVAILABLE::Could not determine category preferences.";
+            return Collections.emptyList();
         }
 
-        // 2. Get all book IDs user has ever borrowed
-        Set<String> allBorrowedBookIds = borrowRecordDao.getBorrowedBookIdsByUserId(loggedInUser.getUserId());
-
-        // 3. Fetch books from preferred categories, excluding already borrowed ones
-        List<Book> recommendedBooks = bookDao.getBooksByCategoriesExcludingBorrowed(preferredCategories, allBorrowedBookIds, limit);
+        // Fetch books from preferred categories, excluding everything the user has ever borrowed
+        return bookDao.getBooksByCategoriesExcludingBorrowed(preferredCategories, borrowedBookIds, limit);
+    }
 
-        if (recommendedBooks.isEmpty()) {
-            return "SUCCESS::NO_NEW_RECOMMENDATIONS_IN_PREFERRED_CATEGORIES";
+    private String handleGetUserDashboard(String[] args, PrintWriter writer) {
+        // GET_USER_DASHBOARD::recommendationLimit
+        // The user's borrow records are read once; overdue items and recommendation inputs are derived from them.
+        // The catalog goes last so it can be streamed straight from the cursor.
+        if (args.length != 1) return "ERROR::USER_DASHBOARD_INVALID_ARGS::Expected recommendationLimit";
+        int limit;
+        try {
+            limit = Integer.parseInt(args[0]);
+            if (limit <= 0) throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            return "ERROR::USER_DASHBOARD_INVALID_ARGS::Limit must be a positive integer.";
         }
 
-        String recommendationsStr = recommendedBooks.stream()
+        List<BorrowRecord> records = borrowRecordDao.getBorrowRecordsByUserId(loggedInUser.getUserId());
+        String recordsStr = records.stream().map(this::formatBorrowRecord).collect(Collectors.joining(";"));
+        String overdueStr = records.stream()
+                .filter(BorrowRecord::isOverdue)
+                .map(this::formatBorrowRecord)
+                .collect(Collectors.joining(";"));
+        String recommendationsStr = recommendBooks(records, limit).stream()
                 .map(this::formatBookToString)
                 .collect(Collectors.joining(";"));
-        return "SUCCESS::RECOMMENDATIONS::" + recommendationsStr;
+
+        String header = "SUCCESS::USER_DASHBOARD::" + recordsStr + "::" + overdueStr + "::" + recommendationsStr + "::";
+        StreamingResponse response = openListResponse(writer, header, header);
+        try {
+            bookDao.forEachBook(b -> response.writeRow(formatBookToString(b)));
+            response.finish();
+        } catch (SQLException e) {
+            System.err.println("Error streaming dashboard catalog: " + e.getMessage());
+            response.fail("ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage());
+        }
+        logStreamed(response);
+        return null;
     }
 
 
@@ -549,6 +867,102 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    /**
+     * ADD_BOOKS / UPDATE_BOOKS: many books in one request. Rows are validated in memory (same rules as ADD_BOOK and
+     * UPDATE_BOOK, plus the column lengths), existence is checked and locked with a few IN queries, and all valid rows
+     * are written with JDBC batches in a single transaction. Invalid rows are skipped and reported; the valid ones are
+     * written either all or none.
+     * Per-row status: OK, INVALID, DUPLICATE (ID repeated in the request), EXISTS (add) or NOT_FOUND (update).
+     */
+    private String handleBulkBooks(String[] args, boolean insert) {
+        String op = insert ? "ADD_BOOKS" : "UPDATE_BOOKS";
+        if (args.length != 1 || args[0].isEmpty()) {
+            return "ERROR::" + op + "_INVALID_ARGS::Expected bookId|title|author|category|quantity|totalQuantity;...";
+        }
+        String[] rows = args[0].split(";", -1);
+        if (rows.length > MAX_BULK_ROWS) {
+            return "ERROR::" + op + "_INVALID_ARGS::At most " + MAX_BULK_ROWS + " rows per request.";
+        }
+
+        String[] rowIds = new String[rows.length];
+        String[] statuses = new String[rows.length];
+        List<Book> candidates = new ArrayList<>();
+        List<Integer> candidateRows = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+        for (int i = 0; i < rows.length; i++) {
+            String[] fields = rows[i].split("\\|", -1);
+            rowIds[i] = fields[0];
+            if (fields.length != 6 || fields[0].isEmpty() || !BookDao.fitsColumns(fields[0], fields[1], fields[2], fields[3])) {
+                statuses[i] = "INVALID";
+                continue;
+            }
+            try {
+                int quantity = Integer.parseInt(fields[4]);
+                int totalQuantity = Integer.parseInt(fields[5]);
+                if (quantity < 0 || totalQuantity < 0 || quantity > totalQuantity) {
+                    statuses[i] = "INVALID";
+                    continue;
+                }
+                if (!seenIds.add(fields[0])) {
+                    statuses[i] = "DUPLICATE";
+                    continue;
+                }
+                candidates.add(new Book(fields[0], fields[1], fields[2], fields[3], quantity, totalQuantity));
+                candidateRows.add(i);
+            } catch (NumberFormatException e) {
+                statuses[i] = "INVALID";
+            }
+        }
+
+        int written = 0;
+        Connection conn = null;
+        try {
+            conn = DatabaseManager.getConnection();
+            conn.setAutoCommit(false);
+            // Locked until commit, so a concurrent ADD_BOOK can't turn an OK row into a duplicate key for the batch
+            Set<String> existing = bookDao.findExistingBookIdsForUpdate(seenIds, conn);
+            List<Book> toWrite = new ArrayList<>(candidates.size());
+            for (int c = 0; c < candidates.size(); c++) {
+                Book book = candidates.get(c);
+                int row = candidateRows.get(c);
+                if (insert && existing.contains(book.getBookId())) {
+                    statuses[row] = "EXISTS";
+                } else if (!insert && !existing.contains(book.getBookId())) {
+                    statuses[row] = "NOT_FOUND";
+                } else {
+                    statuses[row] = "OK";
+                    toWrite.add(book);
+                }
+            }
+            if (insert) {
+                bookDao.addBooks(toWrite, conn);
+            } else {
+                bookDao.updateBooks(toWrite, conn);
+            }
+            conn.commit();
+            written = toWrite.size();
+        } catch (SQLException e) {
+            if (conn != null) try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+            System.err.println("Error in " + op + ": " + e.getMessage());
+            return "FAILURE::" + op + "_FAILED::Database error, nothing was written.";
+        } finally {
+            if (conn != null) {
+                try { conn.setAutoCommit(true); } catch (SQLException ex) { ex.printStackTrace(); }
+                DatabaseManager.closeQuietly(conn);
+            }
+        }
+
+        StringBuilder response = new StringBuilder(rows.length * 24);
+        response.append("SUCCESS::").append(insert ? "BOOKS_ADDED" : "BOOKS_UPDATED")
+                .append("::").append(written).append("::").append(rows.length - written).append("::");
+        for (int i = 0; i < rows.length; i++) {
+            if (i > 0) response.append(';');
+            response.append(i + 1).append('|').append(rowIds[i]).append('|').append(statuses[i]);
+        }
+        System.out.println(op + ": " + written + " of " + rows.length + " rows written.");
+        return response.toString();
+    }
+
     private String handleDeleteBook(String[] args) {
         if (args.length != 1) return "ERROR::DELETE_BOOK_INVALID_ARGS::Expected bookId";
         String bookId = args[0];
@@ -562,11 +976,152 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    private String handleViewAllBorrowingRecords() {
-        List<BorrowRecord> records = borrowRecordDao.getAllBorrowRecords();
-        if (records.isEmpty()) return "SUCCESS::NO_BORROWING_RECORDS_FOUND_SYSTEM_WIDE";
-        String recordsStr = records.stream().map(this::formatBorrowRecord).collect(Collectors.joining(";"));
-        return "SUCCESS::ALL_BORROWING_RECORDS::" + recordsStr;
+    private String handleViewAllBorrowingRecords(PrintWriter writer) {
+        StreamingResponse response = openListResponse(writer, "SUCCESS::ALL_BORROWING_RECORDS::", "SUCCESS::NO_BORROWING_RECORDS_FOUND_SYSTEM_WIDE");
+        try {
+            borrowRecordDao.forEachBorrowRecord(r -> response.writeRow(formatBorrowRecord(r)));
+            response.finish();
+        } catch (SQLException e) {
+            System.err.println("Error streaming all borrow records: " + e.getMessage());
+            response.fail("ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage());
+        }
+        logStreamed(response);
+        return null;
+    }
+
+    private String handleBorrowRecordsPage(String[] args) {
+        // VIEW_ALL_BORROWING_RECORDS::limit::cursor::userId::bookId::fromDate::toDate::ALL|ACTIVE|OVERDUE
+        // cursor is borrowDate|recordId from the previous page (empty for the first); other filters may be empty
+        if (args.length != 7) {
+            return "ERROR::VIEW_RECORDS_INVALID_ARGS::Expected limit::cursor::userId::bookId::fromDate::toDate::status";
+        }
+        int limit;
+        LocalDate afterDate = null;
+        int afterRecordId = 0;
+        BorrowRecordQuery query;
+        try {
+            limit = Integer.parseInt(args[0]);
+            if (limit <= 0 || limit > MAX_RECORDS_PAGE) throw new NumberFormatException();
+            if (!args[1].isEmpty()) {
+                String[] cursor = args[1].split("\\|", -1);
+                if (cursor.length != 2) throw new IllegalArgumentException();
+                afterDate = LocalDate.parse(cursor[0]);
+                afterRecordId = Integer.parseInt(cursor[1]);
+            }
+            String status = args[6].isEmpty() ? "ALL" : args[6].toUpperCase();
+            if (!status.matches("ALL|ACTIVE|OVERDUE")) throw new IllegalArgumentException();
+            query = new BorrowRecordQuery(args[2], args[3],
+                    args[4].isEmpty() ? null : LocalDate.parse(args[4]),
+                    args[5].isEmpty() ? null : LocalDate.parse(args[5]),
+                    "ACTIVE".equals(status), "OVERDUE".equals(status));
+        } catch (IllegalArgumentException | DateTimeParseException e) { // NumberFormatException is an IllegalArgumentException
+            return "ERROR::VIEW_RECORDS_INVALID_ARGS::limit must be 1-" + MAX_RECORDS_PAGE
+                    + ", dates yyyy-MM-dd, cursor as returned by the previous page, status ALL, ACTIVE or OVERDUE.";
+        }
+
+        List<BorrowRecord> records;
+        try {
+            records = borrowRecordDao.getBorrowRecordsPage(query, afterDate, afterRecordId, limit + 1); // One extra tells if there is more
+        } catch (SQLException e) {
+            System.err.println("Error fetching borrow records page: " + e.getMessage());
+            return "ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage();
+        }
+        String nextCursor = "";
+        if (records.size() > limit) {
+            records = records.subList(0, limit);
+            BorrowRecord last = records.get(limit - 1);
+            nextCursor = last.getBorrowDate() + "|" + last.getRecordId();
+        }
+        String rows = records.stream().map(this::formatBorrowRecord).collect(Collectors.joining(";"));
+        return "SUCCESS::BORROWING_RECORDS_PAGE::" + nextCursor + "::" + rows;
+    }
+
+    private String handleGetOverdueLoans(String[] args) {
+        // GET_OVERDUE_LOANS::limit::cursor - served from the scanner's in-memory set, never from the history
+        if (args.length != 2) return "ERROR::OVERDUE_LOANS_INVALID_ARGS::Expected limit::cursor";
+        int limit;
+        LocalDate afterDueDate = null;
+        int afterRecordId = 0;
+        try {
+            limit = Integer.parseInt(args[0]);
+            if (limit <= 0 || limit > MAX_RECORDS_PAGE) throw new NumberFormatException();
+            if (!args[1].isEmpty()) {
+                String[] cursor = args[1].split("\\|", -1);
+                if (cursor.length != 2) throw new IllegalArgumentException();
+                afterDueDate = LocalDate.parse(cursor[0]);
+                afterRecordId = Integer.parseInt(cursor[1]);
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return "ERROR::OVERDUE_LOANS_INVALID_ARGS::limit must be 1-" + MAX_RECORDS_PAGE
+                    + ", cursor as returned by the previous page.";
+        }
+
+        List<BorrowRecord> records;
+        try {
+            records = overdueScanner.page(afterDueDate, afterRecordId, limit + 1); // One extra tells if there is more
+        } catch (SQLException e) {
+            System.err.println("Error loading overdue loans: " + e.getMessage());
+            return "ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage();
+        }
+        String nextCursor = "";
+        if (records.size() > limit) {
+            records = records.subList(0, limit);
+            BorrowRecord last = records.get(limit - 1);
+            nextCursor = last.getDueDate() + "|" + last.getRecordId();
+        }
+        String rows = records.stream().map(this::formatBorrowRecord).collect(Collectors.joining(";"));
+        return "SUCCESS::OVERDUE_LOANS_PAGE::" + nextCursor + "::" + overdueScanner.size() + "::"
+                + overdueScanner.getScannedOn() + "::" + rows;
+    }
+
+    private String handleExportBorrowRecords(String[] args, PrintWriter writer) {
+        // EXPORT_BORROW_RECORDS[::fromDate::toDate] - dates are yyyy-MM-dd on borrow_date, either may be empty
+        if (args.length != 0 && args.length != 2) {
+            return "ERROR::EXPORT_INVALID_ARGS::Expected nothing or fromDate::toDate";
+        }
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            if (args.length == 2) {
+                from = args[0].isEmpty() ? null : LocalDate.parse(args[0]);
+                to = args[1].isEmpty() ? null : LocalDate.parse(args[1]);
+            }
+        } catch (DateTimeParseException e) {
+            return "ERROR::EXPORT_INVALID_ARGS::Dates must be yyyy-MM-dd.";
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return "ERROR::EXPORT_INVALID_ARGS::fromDate is after toDate.";
+        }
+
+        String fileName = "borrow-records" + (from != null ? "-from-" + from : "") + (to != null ? "-to-" + to : "") + ".csv.gz";
+        ExportStream export = new ExportStream(writer, "CSV_GZIP", fileName);
+        int rows = 0;
+        try {
+            GZIPOutputStream gzip = new GZIPOutputStream(export, 64 * 1024);
+            Writer csv = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), 64 * 1024);
+            csv.write("record_id,user_id,book_id,borrow_date,due_date,return_date\n");
+            rows = borrowRecordDao.forEachBorrowRecord(from, to, r -> {
+                try {
+                    csv.write(r.getRecordId() + "," + csvField(r.getUserId()) + "," + csvField(r.getBookId()) + ","
+                            + r.getBorrowDate() + "," + r.getDueDate() + "," + (r.getReturnDate() != null ? r.getReturnDate() : "") + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            csv.close(); // Writes the gzip trailer into the export; the connection stays open
+            export.finish(rows);
+            System.out.println("Exported to " + clientSocket.getPort() + ": " + rows + " borrow records (" + fileName + ")");
+        } catch (SQLException | IOException | RuntimeException e) { // Always end the export, or its heartbeat keeps writing
+            System.err.println("Error exporting borrow records: " + e.getMessage());
+            export.fail(e.getMessage());
+        }
+        return null;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
     }
 
     private String handleGetPopularBooks(String[] args) {
@@ -610,13 +1165,21 @@ public class ClientHandler implements Runnable {
     }
 
 
-    private String handleGetAllUsers() {
-        List<User> users = userDao.getAllUsers();
-        if (users.isEmpty()) return "SUCCESS::NO_USERS_FOUND";
-        String usersStr = users.stream()
-                .map(u -> String.join("|", u.getUserId(), u.getUsername(), u.getRole().name(), u.isActive() ? "ACTIVE" : "INACTIVE"))
-                .collect(Collectors.joining(";"));
-        return "SUCCESS::USER_LIST::" + usersStr;
+    private String formatUser(User u) {
+        return String.join("|", u.getUserId(), u.getUsername(), u.getRole().name(), u.isActive() ? "ACTIVE" : "INACTIVE");
+    }
+
+    private String handleGetAllUsers(PrintWriter writer) {
+        StreamingResponse response = openListResponse(writer, "SUCCESS::USER_LIST::", "SUCCESS::NO_USERS_FOUND");
+        try {
+            userDao.forEachUser(u -> response.writeRow(formatUser(u)));
+            response.finish();
+        } catch (SQLException e) {
+            System.err.println("Error streaming all users: " + e.getMessage());
+            response.fail("ERROR::INTERNAL_SERVER_ERROR::" + e.getMessage());
+        }
+        logStreamed(response);
+        return null;
     }
 
     private String handleUpdateUserStatus(String[] args) {
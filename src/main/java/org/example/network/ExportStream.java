@@ -0,0 +1,132 @@
+package org.example.network;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a file-sized export over the line protocol as a sequence of frames instead of one huge response line:
+ *
+ *   SUCCESS::EXPORT_BEGIN::format::suggestedFileName
+ *   DATA::base64(bytes)                  (repeated, at most CHUNK_BYTES raw bytes per line)
+ *   SUCCESS::EXPORT_END::rows::bytes     or ERROR::EXPORT_FAILED::message if the source failed midway
+ *
+ * The bytes are written as they are produced, so neither side ever holds more than one chunk. The payload is
+ * already compressed, so these lines bypass the connection's FrameCodec.
+ *
+ * A selective export can scan for a long time between two full chunks, so whatever is buffered (possibly nothing,
+ * an empty DATA line) is also sent whenever the connection has been quiet for HEARTBEAT_MILLIS. That keeps the
+ * client's read timeout from firing on an export that is still running.
+ */
+public class ExportStream extends OutputStream {
+    public static final String DATA_PREFIX = "DATA::";
+    public static final int CHUNK_BYTES = 48 * 1024; // 64 KB per line once Base64 encoded
+    private static final long HEARTBEAT_MILLIS = 5000; // Well under the client's 15s read timeout
+
+    private static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "export-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final PrintWriter writer;
+    private final byte[] buffer = new byte[CHUNK_BYTES];
+    private int buffered = 0;
+    private long totalBytes = 0;
+    private boolean finished = false;
+    private long lastSentAt = System.currentTimeMillis();
+    private final ScheduledFuture<?> heartbeat;
+
+    public ExportStream(PrintWriter writer, String format, String fileName) {
+        this.writer = writer;
+        writer.println("SUCCESS::EXPORT_BEGIN::" + format + "::" + fileName);
+        heartbeat = HEARTBEATS.scheduleWithFixedDelay(this::sendIfQuiet, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS / 2, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on the heartbeat thread, hence the synchronized writes.
+    private synchronized void sendIfQuiet() {
+        if (finished || System.currentTimeMillis() - lastSentAt < HEARTBEAT_MILLIS) {
+            return;
+        }
+        writer.print(DATA_PREFIX);
+        writer.println(Base64.getEncoder().encodeToString(Arrays.copyOf(buffer, buffered)));
+        totalBytes += buffered;
+        buffered = 0;
+        lastSentAt = System.currentTimeMillis();
+        if (writer.checkError()) {
+            heartbeat.cancel(false); // The next write of the export notices the lost client
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (buffered == buffer.length) {
+            sendChunk();
+        }
+        buffer[buffered++] = (byte) b;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (buffered == buffer.length) {
+                sendChunk();
+            }
+            int n = Math.min(len, buffer.length - buffered);
+            System.arraycopy(b, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void sendChunk() {
+        if (buffered == 0) {
+            return;
+        }
+        writer.print(DATA_PREFIX);
+        writer.println(Base64.getEncoder().encodeToString(buffered == buffer.length ? buffer : Arrays.copyOf(buffer, buffered)));
+        totalBytes += buffered;
+        buffered = 0;
+        lastSentAt = System.currentTimeMillis();
+        if (writer.checkError()) { // PrintWriter swallows socket errors; stop producing for a client that is gone
+            throw new UncheckedIOException(new IOException("Client connection lost during export."));
+        }
+    }
+
+    // Sends what is left and the end frame. Call after closing any compressing stream wrapped around this one.
+    public synchronized void finish(long rowCount) {
+        if (finished) {
+            return;
+        }
+        heartbeat.cancel(false);
+        sendChunk();
+        writer.println("SUCCESS::EXPORT_END::" + rowCount + "::" + totalBytes);
+        writer.flush();
+        finished = true;
+    }
+
+    // Ends the export with an error frame; the client discards what it has received so far.
+    public synchronized void fail(String message) {
+        if (finished) {
+            return;
+        }
+        heartbeat.cancel(false);
+        buffered = 0;
+        writer.println("ERROR::EXPORT_FAILED::" + message);
+        writer.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() {
+        // The connection outlives the export; finish() or fail() end it
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Per-connection framing for response lines. Once compression has been negotiated with HELLO, frames at or above
+ * the threshold are sent as "Z::" + Base64(DEFLATE(frame)). The Deflater/Inflater pair lives as long as the
+ * connection and every frame ends with a SYNC_FLUSH, so later frames reuse the dictionary built up by earlier
+ * ones (repeated catalog refreshes compress very well). Frames below the threshold are sent as plain text.
+ */
+public class FrameCodec {
+    public static final String COMPRESSED_PREFIX = "Z::";
+    public static final String DEFLATE = "DEFLATE";
+    public static final String NONE = "NONE";
+    public static final int DEFAULT_THRESHOLD = 512; // Characters; smaller frames are not worth compressing
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Inflater inflater = new Inflater(true);
+    private boolean compressionEnabled = false;
+    private int threshold = DEFAULT_THRESHOLD;
+
+    public void enableCompression(int threshold) {
+        this.threshold = Math.max(threshold, 0);
+        this.compressionEnabled = true;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    // Turns a response into the line that goes on the wire (without the line terminator).
+    public String encode(String frame) {
+        if (!compressionEnabled || frame.length() < threshold) {
+            return frame;
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(frame.length() / 4 + 16);
+        try {
+            DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater, true);
+            out.write(frame.getBytes(StandardCharsets.UTF_8));
+            out.flush(); // SYNC_FLUSH: ends the frame but keeps the stream (and dictionary) open
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw; treat as a programming error
+            throw new IllegalStateException("Failed to compress frame", e);
+        }
+        return COMPRESSED_PREFIX + Base64.getEncoder().encodeToString(compressed.toByteArray());
+    }
+
+    // Reverses encode(). Plain frames are returned unchanged.
+    public String decode(String line) throws IOException {
+        if (line == null || !line.startsWith(COMPRESSED_PREFIX)) {
+            return line;
+        }
+        byte[] input;
+        try {
+            input = Base64.getDecoder().decode(line.substring(COMPRESSED_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed compressed frame: " + e.getMessage());
+        }
+        inflater.setInput(input);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 4);
+        byte[] buffer = new byte[8192];
+        try {
+            while (true) {
+                int n = inflater.inflate(buffer);
+                if (n > 0) {
+                    out.write(buffer, 0, n);
+                } else if (inflater.needsInput() || inflater.finished() || inflater.needsDictionary()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame: " + e.getMessage());
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts a compressed frame whose size is not known up front (streamed list responses). Writes the frame prefix
+     * to the connection and returns a Writer for the frame body; closing it flushes the compressed tail and the
+     * Base64 padding but leaves the connection open. The caller terminates the line.
+     */
+    public Writer openCompressedFrame(PrintWriter connection) {
+        connection.print(COMPRESSED_PREFIX);
+        OutputStream base64 = Base64.getEncoder().wrap(new AsciiOutputStream(connection));
+        DeflaterOutputStream deflated = new DeflaterOutputStream(base64, deflater, 8192, true);
+        return new OutputStreamWriter(deflated, StandardCharsets.UTF_8) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) return;
+                closed = true;
+                flush();        // Encoder -> deflater, then SYNC_FLUSH of the deflater
+                base64.close(); // Emits the Base64 padding; AsciiOutputStream ignores close()
+            }
+        };
+    }
+
+    // Feeds Base64 output (pure ASCII) into the connection's character writer.
+    private static class AsciiOutputStream extends OutputStream {
+        private final PrintWriter target;
+
+        AsciiOutputStream(PrintWriter target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) {
+            target.write((char) (b & 0xff));
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target.write(new String(b, off, len, StandardCharsets.ISO_8859_1));
+        }
+
+        @Override
+        public void close() {
+            // The connection outlives the frame
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.network;
+
+import org.example.dao.IdempotencyKeyDao;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Server-wide dedup table for requests that carry a client-generated idempotency key (BORROW_BOOK, RETURN_BOOK).
+ * The first request with a key runs and its response is remembered; a retry with the same key gets that response
+ * back instead of being applied a second time. A retry that arrives while the original is still running (typically
+ * on a new connection after the old one timed out) waits for the original's result.
+ *
+ * Entries expire after a while and the table is capped, oldest first, so it stays small. ERROR responses are not
+ * remembered since they mean the request never got as far as doing anything.
+ *
+ * Finished responses are also written to the idempotency_keys table for the same TTL, so a retry is still recognised
+ * after a server restart or when it reaches another instance. Only waiting for an in-flight original is local to
+ * this instance. If the table cannot be read the request runs as if the key were new.
+ */
+public class IdempotencyCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+    private static final Pattern VALID_KEY = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final IdempotencyKeyDao dao; // null keeps the table in memory only
+    private long lastPurge = System.currentTimeMillis();
+    // Insertion order == age order, so expiry and the size cap both remove from the head
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    private static class Entry {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        final long createdAt = System.currentTimeMillis();
+    }
+
+    public IdempotencyCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, new IdempotencyKeyDao());
+    }
+
+    public IdempotencyCache(int maxEntries, long ttlMillis, IdempotencyKeyDao dao) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.dao = dao;
+    }
+
+    public static boolean isValidKey(String key) {
+        return key != null && VALID_KEY.matcher(key).matches();
+    }
+
+    /**
+     * Runs action once per key and returns its response, or the remembered response if the key was seen before.
+     * The key should already be scoped to the user and request type by the caller.
+     */
+    public String execute(String key, Supplier<String> action) {
+        Entry entry;
+        boolean owner = false;
+        boolean purge = false;
+        synchronized (this) {
+            evictExpired();
+            if (dao != null && System.currentTimeMillis() - lastPurge >= ttlMillis) {
+                lastPurge = System.currentTimeMillis();
+                purge = true;
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+                if (entries.size() > maxEntries) {
+                    Iterator<Entry> oldest = entries.values().iterator();
+                    oldest.next();
+                    oldest.remove(); // Waiters of an evicted in-flight entry still get its result
+                }
+            }
+        }
+        if (purge) {
+            purgePersisted();
+        }
+        if (!owner) {
+            return awaitOriginal(entry);
+        }
+
+        String response = null;
+        boolean stored = false;
+        try {
+            Optional<String> persisted = findPersisted(key, entry);
+            if (persisted.isPresent()) {
+                stored = true; // Answered before a restart or by another instance
+                response = persisted.get();
+                return response;
+            }
+            response = action.get();
+            return response;
+        } finally {
+            if (response == null || response.startsWith("ERROR::")) {
+                forget(key, entry); // Not an outcome worth replaying; let a retry run the request again
+            } else if (!stored) {
+                persist(key, entry, response);
+            }
+            // Also releases waiting retries when the action threw (they see null and report an error)
+            entry.result.complete(response);
+        }
+    }
+
+    private String awaitOriginal(Entry entry) {
+        try {
+            String response = entry.result.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+            return response != null ? response : "ERROR::IDEMPOTENT_REQUEST_FAILED::The original request failed, please retry.";
+        } catch (TimeoutException e) {
+            return "ERROR::REQUEST_IN_PROGRESS::The original request is still being processed.";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR::REQUEST_IN_PROGRESS::Interrupted while waiting for the original request.";
+        } catch (ExecutionException e) {
+            return "ERROR::IDEMPOTENT_REQUEST_FAILED::" + e.getCause().getMessage();
+        }
+    }
+
+    private Optional<String> findPersisted(String key, Entry entry) {
+        if (dao == null) {
+            return Optional.empty();
+        }
+        try {
+            return dao.findResponse(key, entry.createdAt - ttlMillis);
+        } catch (SQLException e) {
+            System.err.println("IdempotencyCache: Could not look up key " + key + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void persist(String key, Entry entry, String response) {
+        if (dao == null) {
+            return;
+        }
+        try {
+            dao.saveResponse(key, response, entry.createdAt);
+        } catch (SQLException e) {
+            // Still remembered in memory; only a restart or another instance would miss it
+            System.err.println("IdempotencyCache: Could not persist key " + key + ": " + e.getMessage());
+        }
+    }
+
+    private void purgePersisted() {
+        try {
+            dao.deleteOlderThan(System.currentTimeMillis() - ttlMillis);
+        } catch (SQLException e) {
+            System.err.println("IdempotencyCache: Could not purge expired keys: " + e.getMessage());
+        }
+    }
+
+    private synchronized void forget(String key, Entry entry) {
+        entries.remove(key, entry);
+    }
+
+    // Caller holds the lock.
+    private void evictExpired() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry.createdAt >= cutoff) {
+                break; // Everything after this one is younger
+            }
+            if (entry.result.isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
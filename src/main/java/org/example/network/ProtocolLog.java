@@ -0,0 +1,42 @@
+package org.example.network;
+
+/**
+ * Log formatting for protocol lines, shared by the server and the GUI client. Credentials never reach the log:
+ * passwords in LOGIN/REGISTER requests and session tokens in RESUME_SESSION requests and LOGIN_SUCCESSFUL
+ * responses are masked.
+ */
+public final class ProtocolLog {
+    private static final String MASK = "****";
+    private static final String LOGIN_SUCCESSFUL = "SUCCESS::LOGIN_SUCCESSFUL::";
+
+    private ProtocolLog() {
+    }
+
+    public static String redact(String line) {
+        if (line == null) {
+            return null;
+        }
+        if (line.startsWith(RequestType.LOGIN.name() + "::") || line.startsWith(RequestType.REGISTER.name() + "::")) {
+            return maskFrom(line, 2); // TYPE::username::password
+        }
+        if (line.startsWith(RequestType.RESUME_SESSION.name() + "::")) {
+            return maskFrom(line, 1); // RESUME_SESSION::token
+        }
+        if (line.startsWith(LOGIN_SUCCESSFUL)) {
+            return maskFrom(line, 5); // SUCCESS::LOGIN_SUCCESSFUL::role::userId::welcome::token
+        }
+        return line;
+    }
+
+    // Keeps the first keepFields "::"-separated fields and masks the rest, if there is a rest.
+    private static String maskFrom(String line, int keepFields) {
+        int end = -2;
+        for (int i = 0; i < keepFields; i++) {
+            end = line.indexOf("::", end + 2);
+            if (end < 0) {
+                return line;
+            }
+        }
+        return line.substring(0, end + 2) + MASK;
+    }
+}
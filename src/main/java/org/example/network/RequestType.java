@@ -2,7 +2,8 @@ package org.example.network;
 
 public enum RequestType {
     // User operations
-    LOGIN,              // LOGIN::username::password
+    LOGIN,              // LOGIN::username::password -> SUCCESS::LOGIN_SUCCESSFUL::role::userId::welcome::sessionToken
+    RESUME_SESSION,     // RESUME_SESSION::sessionToken (from LOGIN) -> same as LOGIN; for reconnecting without the password
     REGISTER,           // REGISTER::username::password (userId and NORMAL_USER role are auto-assigned)
     LOGOUT,             // LOGOUT
 
@@ -10,21 +11,30 @@ public enum RequestType {
     GET_ALL_BOOKS,      // GET_ALL_BOOKS
     SEARCH_BOOK,        // SEARCH_BOOK::searchField(title/author/category)::searchTerm
     GET_BOOK_BY_ID,     // GET_BOOK_BY_ID::bookId
+    GET_BOOKS_BY_IDS,   // GET_BOOKS_BY_IDS::bookId;bookId;... (unknown IDs are left out of the result)
 
     // Book operations (User)
-    BORROW_BOOK,        // BORROW_BOOK::bookId (userId from loggedInUser)
-    RETURN_BOOK,        // RETURN_BOOK::bookId (userId from loggedInUser)
+    BORROW_BOOK,        // BORROW_BOOK::bookId[::idempotencyKey] (userId from loggedInUser; a retry with the same key gets the original response)
+    RETURN_BOOK,        // RETURN_BOOK::bookId[::idempotencyKey] (userId from loggedInUser; a retry with the same key gets the original response)
     VIEW_MY_BORROWING_RECORDS, // VIEW_MY_BORROWING_RECORDS (userId from loggedInUser)
     GET_MY_OVERDUE_BOOKS, // GET_MY_OVERDUE_BOOKS (userId from loggedInUser)
     GET_MY_RECOMMENDATIONS, // GET_MY_RECOMMENDATIONS::limit (userId from loggedInUser)
+    GET_USER_DASHBOARD, // GET_USER_DASHBOARD::recommendationLimit -> SUCCESS::USER_DASHBOARD::records::overdue::recommendations::books
 
     // Book operations (Admin)
     ADD_BOOK,           // ADD_BOOK::bookId::title::author::category::quantity::totalQuantity
     UPDATE_BOOK,        // UPDATE_BOOK::bookId::title::author::category::quantity::totalQuantity
     DELETE_BOOK,        // DELETE_BOOK::bookId
+    ADD_BOOKS,          // ADD_BOOKS::bookId|title|author|category|quantity|totalQuantity;... -> SUCCESS::BOOKS_ADDED::written::rejected::row|bookId|status;...
+    UPDATE_BOOKS,       // UPDATE_BOOKS::bookId|title|author|category|quantity|totalQuantity;... -> SUCCESS::BOOKS_UPDATED::written::rejected::row|bookId|status;...
 
     // Borrowing records & Statistics (Admin)
-    VIEW_ALL_BORROWING_RECORDS, // VIEW_ALL_BORROWING_RECORDS
+    VIEW_ALL_BORROWING_RECORDS, // VIEW_ALL_BORROWING_RECORDS (everything) or
+                                // VIEW_ALL_BORROWING_RECORDS::limit::cursor::userId::bookId::fromDate::toDate::ALL|ACTIVE|OVERDUE
+                                //   -> SUCCESS::BORROWING_RECORDS_PAGE::nextCursor::rows (newest first, nextCursor empty on the last page)
+    EXPORT_BORROW_RECORDS,      // EXPORT_BORROW_RECORDS[::fromDate::toDate] -> EXPORT_BEGIN, DATA..., EXPORT_END lines (see ExportStream); not allowed in BATCH
+    GET_OVERDUE_LOANS,          // GET_OVERDUE_LOANS::limit::cursor -> SUCCESS::OVERDUE_LOANS_PAGE::nextCursor::total::asOf::rows
+                                //   (most overdue first; cursor is dueDate|recordId, empty for the first page and on the last)
     GET_POPULAR_BOOKS,          // GET_POPULAR_BOOKS::limit
     GET_TRENDING_BOOKS,         // GET_TRENDING_BOOKS::limit::daysPeriod
 
@@ -33,6 +43,32 @@ public enum RequestType {
     UPDATE_USER_STATUS, // UPDATE_USER_STATUS::userId::isActive(true/false)
 
     // General
+    BATCH,              // BATCH::base64(subRequest)::base64(subRequest)... -> SUCCESS::BATCH_RESULTS::base64(response);base64(response)...
+    HELLO,              // HELLO::capability[,capability...] (e.g. DEFLATE) -> SUCCESS::HELLO::agreedCapability::threshold
     PING,               // PING
-    TERMINATE_CONNECTION // TERMINATE_CONNECTION
+    TERMINATE_CONNECTION; // TERMINATE_CONNECTION
+
+    // Requests that neither change data nor session state. They can run concurrently inside a BATCH
+    // and are safe to repeat.
+    public boolean isReadOnly() {
+        switch (this) {
+            case PING:
+            case GET_ALL_BOOKS:
+            case SEARCH_BOOK:
+            case GET_BOOK_BY_ID:
+            case GET_BOOKS_BY_IDS:
+            case VIEW_MY_BORROWING_RECORDS:
+            case GET_MY_OVERDUE_BOOKS:
+            case GET_MY_RECOMMENDATIONS:
+            case GET_USER_DASHBOARD:
+            case VIEW_ALL_BORROWING_RECORDS:
+            case GET_OVERDUE_LOANS:
+            case GET_POPULAR_BOOKS:
+            case GET_TRENDING_BOOKS:
+            case GET_ALL_USERS:
+                return true;
+            default:
+                return false;
+        }
+    }
 }
\ No newline at end of file
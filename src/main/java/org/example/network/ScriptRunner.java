@@ -0,0 +1,240 @@
+package org.example.network;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Batch mode for the command-line client: sends a script of protocol lines (one request per line, e.g. a few
+ * thousand ADD_BOOK or UPDATE_USER_STATUS lines) without waiting a full round trip per line.
+ *
+ * The server answers the requests on one connection strictly in order, so a connection can have up to "window"
+ * requests in flight and match responses to requests by position. With several connections, lines are dealt out
+ * round-robin, which means lines on different connections may run in any order; use one connection when the order
+ * matters. LOGIN and LOGOUT lines are sent on every connection so each one has the same session.
+ *
+ * Every response is written to the output as: line number, connection, round-trip time in microseconds,
+ * request and response, tab-separated, in the order the responses arrive.
+ * Blank lines and lines starting with '#' are skipped.
+ */
+public class ScriptRunner {
+    public static final int DEFAULT_WINDOW = 32;
+
+    private final String hostname;
+    private final int port;
+    private final int window;
+    private final int connectionCount;
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private final AtomicInteger responseCount = new AtomicInteger();
+    private PrintWriter output;
+
+    public ScriptRunner(String hostname, int port, int window, int connectionCount) {
+        this.hostname = hostname;
+        this.port = port;
+        this.window = Math.max(1, window);
+        this.connectionCount = Math.max(1, connectionCount);
+    }
+
+    // script and outputFile may be "-" for stdin/stdout. Returns false if any request failed or got an ERROR/FAILURE.
+    public boolean run(String script, String outputFile) throws IOException {
+        try (BufferedReader input = "-".equals(script)
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Paths.get(script), StandardCharsets.UTF_8);
+             PrintWriter out = "-".equals(outputFile)
+                     ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                     : new PrintWriter(Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8))) {
+            this.output = out;
+            List<Pipeline> pipelines = new ArrayList<>();
+            try {
+                for (int i = 0; i < connectionCount; i++) {
+                    pipelines.add(new Pipeline(i + 1));
+                }
+                long start = System.nanoTime();
+                int lineNumber = 0;
+                int sent = 0;
+                String line;
+                while ((line = input.readLine()) != null) {
+                    lineNumber++;
+                    String request = line.trim();
+                    if (request.isEmpty() || request.startsWith("#")) {
+                        continue;
+                    }
+                    String type = request.split("::", 2)[0];
+                    if (RequestType.TERMINATE_CONNECTION.name().equals(type)) {
+                        continue; // Connections are closed once the script is done
+                    }
+                    if (RequestType.EXPORT_BORROW_RECORDS.name().equals(type)) {
+                        // Answered with many lines, which would throw off matching responses by position
+                        System.err.println("Line " + lineNumber + ": skipping " + type + ", exports are not supported in scripts.");
+                        continue;
+                    }
+                    if (RequestType.LOGIN.name().equals(type) || RequestType.LOGOUT.name().equals(type)) {
+                        for (Pipeline pipeline : pipelines) {
+                            pipeline.send(lineNumber, request);
+                        }
+                    } else {
+                        pipelines.get(sent % pipelines.size()).send(lineNumber, request);
+                        sent++;
+                    }
+                    if (!input.ready()) {
+                        // Nothing else is queued up (e.g. stdin from a slow producer); don't sit on buffered requests
+                        pipelines.forEach(Pipeline::flush);
+                    }
+                }
+                for (Pipeline pipeline : pipelines) {
+                    pipeline.drain();
+                }
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                System.err.println("Script finished: " + responseCount.get() + " responses, " + errorCount.get()
+                        + " errors/failures, " + elapsedMillis + " ms over " + pipelines.size()
+                        + " connection(s) with window " + window + ".");
+            } finally {
+                pipelines.forEach(Pipeline::close);
+            }
+        }
+        return errorCount.get() == 0;
+    }
+
+    private synchronized void record(int lineNumber, int connection, long nanos, String request, String response) {
+        responseCount.incrementAndGet();
+        if (response == null || response.startsWith("ERROR::") || response.startsWith("FAILURE::")) {
+            errorCount.incrementAndGet();
+        }
+        output.println(lineNumber + "\t" + connection + "\t" + (nanos / 1000) + "\t" + request + "\t" + response);
+    }
+
+    private static class Pending {
+        final int lineNumber;
+        final String request;
+        final long sentAt = System.nanoTime();
+
+        Pending(int lineNumber, String request) {
+            this.lineNumber = lineNumber;
+            this.request = request;
+        }
+    }
+
+    // One connection: the calling thread writes requests, a reader thread matches responses to them in order.
+    private class Pipeline {
+        private final int id;
+        private final Socket socket;
+        private final PrintWriter writer;
+        private final BufferedReader reader;
+        private final Semaphore permits;
+        private final ConcurrentLinkedQueue<Pending> inFlight = new ConcurrentLinkedQueue<>();
+        private final Thread readerThread;
+        private volatile boolean broken = false;
+        private volatile boolean closing = false;
+
+        Pipeline(int id) throws IOException {
+            this.id = id;
+            this.socket = new Socket(hostname, port);
+            this.writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+            this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.permits = new Semaphore(window);
+            this.readerThread = new Thread(this::readResponses, "script-reader-" + id);
+            this.readerThread.setDaemon(true);
+            this.readerThread.start();
+        }
+
+        void send(int lineNumber, String request) throws IOException {
+            if (!permits.tryAcquire()) {
+                writer.flush(); // Window is full: make sure the server has everything we are waiting on
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for responses.");
+                }
+            }
+            if (broken) {
+                permits.release();
+                record(lineNumber, id, 0, request, "ERROR::CONNECTION_LOST");
+                return;
+            }
+            Pending pending = new Pending(lineNumber, request);
+            inFlight.add(pending);
+            if (broken && inFlight.remove(pending)) { // Reader gave up between the check and the add
+                permits.release();
+                record(lineNumber, id, 0, request, "ERROR::CONNECTION_LOST");
+                return;
+            }
+            writer.println(request);
+        }
+
+        void flush() {
+            writer.flush();
+        }
+
+        // Waits until every request sent on this connection has been answered.
+        void drain() throws IOException {
+            writer.flush();
+            try {
+                permits.acquire(window);
+                permits.release(window);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for responses.");
+            }
+        }
+
+        private void readResponses() {
+            try {
+                while (true) {
+                    String response = reader.readLine();
+                    if (response == null) {
+                        break;
+                    }
+                    Pending pending = inFlight.poll();
+                    if (pending == null) {
+                        if (!closing) { // While closing this is the TERMINATE_CONNECTION reply
+                            System.err.println("Connection " + id + ": unexpected response: " + response);
+                        }
+                        continue;
+                    }
+                    record(pending.lineNumber, id, System.nanoTime() - pending.sentAt, pending.request, response);
+                    permits.release();
+                }
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Connection " + id + ": " + e.getMessage());
+                }
+            }
+            // Connection is gone: fail whatever is still outstanding so the sender never waits forever
+            broken = true;
+            Pending pending;
+            while ((pending = inFlight.poll()) != null) {
+                record(pending.lineNumber, id, System.nanoTime() - pending.sentAt, pending.request, "ERROR::CONNECTION_LOST");
+                permits.release();
+            }
+        }
+
+        void close() {
+            closing = true;
+            if (!broken) {
+                writer.println(RequestType.TERMINATE_CONNECTION.name());
+                writer.flush();
+            }
+            try {
+                readerThread.join(2000); // Lets the reader consume the TERMINATE_CONNECTION reply
+                socket.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                System.err.println("Error closing connection " + id + ": " + e.getMessage());
+            }
+        }
+    }
+}
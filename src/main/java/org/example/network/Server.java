@@ -1,5 +1,8 @@
 package org.example.network;
 
+import org.example.jobs.DueDateReminderService;
+import org.example.jobs.OverdueScanner;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
@@ -9,12 +12,21 @@ import java.util.concurrent.Executors;
 public class Server {
     private final int port;
     private final ExecutorService threadPool;
+    // Separate from the connection pool so BATCH sub-requests can never starve (or deadlock) connection handlers
+    private final ExecutorService requestWorkers;
+    // Shared by all connections: a retried borrow/return usually arrives on a new connection
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache();
+    private final OverdueScanner overdueScanner;
+    private final DueDateReminderService reminderService;
     private ServerSocket serverSocket;
     private volatile boolean running = false;
 
-    public Server(int port, int poolSize) {
+    public Server(int port, int poolSize, OverdueScanner overdueScanner, DueDateReminderService reminderService) {
         this.port = port;
+        this.overdueScanner = overdueScanner;
+        this.reminderService = reminderService;
         this.threadPool = Executors.newFixedThreadPool(poolSize);
+        this.requestWorkers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
     }
 
     public void start() {
@@ -31,7 +43,7 @@ public class Server {
             while (running) {
                 try {
                     Socket clientSocket = serverSocket.accept(); // Blocking call
-                    threadPool.execute(new ClientHandler(clientSocket));
+                    threadPool.execute(new ClientHandler(clientSocket, requestWorkers, idempotencyCache, overdueScanner, reminderService));
                 } catch (IOException e) {
                     if (!running) {
                         System.out.println("Server socket closed, shutting down.");
@@ -68,6 +80,9 @@ public class Server {
                 Thread.currentThread().interrupt();
             }
         }
+        if (!requestWorkers.isShutdown()) {
+            requestWorkers.shutdownNow(); // Connection handlers are gone, so nothing is waiting on these results
+        }
         if (serverSocket != null && !serverSocket.isClosed()) {
             try {
                 serverSocket.close();
@@ -0,0 +1,111 @@
+package org.example.network;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes a list response (STATUS::CODE::row;row;...) straight into the connection's writer one row at a time,
+ * so the server never has to build the whole payload as a single String.
+ * The header is only written once the first row arrives; if no rows arrive, the empty response is sent instead.
+ * When the connection has negotiated compression, the rows go through the connection's FrameCodec as one
+ * compressed frame (streamed frames are always compressed since their size is not known up front).
+ */
+public class StreamingResponse {
+    // Last row of a response whose row source failed after rows were already sent. Clients must discard the list.
+    public static final String ERROR_MARKER = "!ERROR";
+
+    private final PrintWriter writer;
+    private final FrameCodec codec;
+    private final String header;
+    private final String emptyResponse;
+    private Writer body;
+    private int rowCount = 0;
+    private boolean finished = false;
+
+    public StreamingResponse(PrintWriter writer, String header, String emptyResponse) {
+        this(writer, null, header, emptyResponse);
+    }
+
+    public StreamingResponse(PrintWriter writer, FrameCodec codec, String header, String emptyResponse) {
+        this.writer = writer;
+        this.codec = codec;
+        this.header = header;
+        this.emptyResponse = emptyResponse;
+    }
+
+    public void writeRow(String row) {
+        if (finished) {
+            throw new IllegalStateException("Response already finished.");
+        }
+        try {
+            if (rowCount == 0) {
+                body = (codec != null && codec.isCompressionEnabled()) ? codec.openCompressedFrame(writer) : writer;
+                body.write(header);
+            } else {
+                body.write(';');
+            }
+            body.write(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rowCount++;
+    }
+
+    // Terminates the response line and flushes it to the socket. Returns the number of rows written.
+    public int finish() {
+        if (!finished) {
+            if (rowCount == 0) {
+                writer.print(emptyResponse);
+            } else {
+                closeBody();
+            }
+            writer.println();
+            writer.flush();
+            finished = true;
+        }
+        return rowCount;
+    }
+
+    // Used when the row source fails. If nothing has been sent yet the client gets the error response;
+    // otherwise ERROR_MARKER is appended as a last row and the line is terminated, so the connection stays in
+    // sync and the client can tell the list is incomplete.
+    public void fail(String errorResponse) {
+        if (finished) {
+            return;
+        }
+        if (rowCount == 0) {
+            writer.print(errorResponse);
+        } else {
+            try {
+                body.write(';');
+                body.write(ERROR_MARKER);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            closeBody();
+        }
+        writer.println();
+        writer.flush();
+        finished = true;
+    }
+
+    private void closeBody() {
+        if (body != writer) {
+            try {
+                body.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+}
@@ -0,0 +1,447 @@
+package org.example.tools;
+
+import org.example.dao.BookDao;
+import org.example.db.DatabaseManager;
+import org.example.model.Book;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline bulk loader for large catalog dumps (CSV) into the books table.
+ *
+ * Usage: CatalogImporter <file.csv> [--parsers N] [--writers N] [--chunk-mb N] [--replace-existing]
+ *
+ * Expected columns: book_id,title,author,category,quantity,total_quantity (a header line with these names is
+ * skipped). Fields may be quoted with "..." and "" inside quotes; records must not contain line breaks.
+ *
+ * The file is cut into chunks at line boundaries. Chunks are memory-mapped and parsed in parallel on a fork-join
+ * pool, and parsed chunks go through a bounded queue to a few writer threads. Each writer has its own JDBC connection
+ * and writes a whole chunk as batched INSERTs in one transaction. Once a chunk is committed its number is appended
+ * to <file>.checkpoint, so an interrupted import can be started again with the same command and continues with
+ * the chunks that are missing. Rows that fail validation are written to <file>.rejects with their byte offset,
+ * once their chunk has been committed, so retrying a failed chunk does not list its rejects twice.
+ * Existing books are left alone unless --replace-existing is given.
+ */
+public class CatalogImporter {
+    private static final int DEFAULT_CHUNK_MB = 16;
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final String[] HEADER = {"book_id", "title", "author", "category", "quantity", "total_quantity"};
+
+    private final Path csv;
+    private final int parserThreads;
+    private final int writerThreads;
+    private final long chunkSize;
+    private final boolean replaceExisting;
+    private final BookDao bookDao = new BookDao();
+
+    private final AtomicLong bytesDone = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final AtomicInteger chunksFailed = new AtomicInteger();
+    private BufferedWriter rejects;
+
+    private static class Chunk {
+        final int index;
+        final long start;
+        final long end;
+
+        Chunk(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class ParsedChunk {
+        static final ParsedChunk END = new ParsedChunk(null, null, null); // Tells a writer to stop
+
+        final Chunk chunk;
+        final List<Book> books;
+        final List<String> rejects; // Lines for the rejects file, written after the chunk commits
+
+        ParsedChunk(Chunk chunk, List<Book> books, List<String> rejects) {
+            this.chunk = chunk;
+            this.books = books;
+            this.rejects = rejects;
+        }
+    }
+
+    public CatalogImporter(Path csv, int parserThreads, int writerThreads, long chunkSize, boolean replaceExisting) {
+        this.csv = csv;
+        this.parserThreads = Math.max(1, parserThreads);
+        this.writerThreads = Math.max(1, writerThreads);
+        this.chunkSize = Math.max(1024 * 1024, chunkSize);
+        this.replaceExisting = replaceExisting;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: CatalogImporter <file.csv> [--parsers N] [--writers N] [--chunk-mb N] [--replace-existing]");
+            System.exit(2);
+        }
+        int parsers = Runtime.getRuntime().availableProcessors();
+        int writers = 4;
+        int chunkMb = DEFAULT_CHUNK_MB;
+        boolean replace = false;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--parsers": parsers = Integer.parseInt(args[++i]); break;
+                    case "--writers": writers = Integer.parseInt(args[++i]); break;
+                    case "--chunk-mb": chunkMb = Integer.parseInt(args[++i]); break;
+                    case "--replace-existing": replace = true; break;
+                    default:
+                        System.err.println("Unknown option: " + args[i]);
+                        System.exit(2);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Invalid option value: " + e.getMessage());
+            System.exit(2);
+        }
+
+        DatabaseManager.initializeDatabase(); // Makes sure the books table exists
+        try {
+            boolean complete = new CatalogImporter(Paths.get(args[0]), parsers, writers, chunkMb * 1024L * 1024L, replace).run();
+            System.exit(complete ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Returns true if every chunk has been written (in this run or an earlier one).
+    public boolean run() throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Chunk> chunks = planChunks(channel, size);
+            ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointFile(), csv, size, chunkSize);
+            List<Chunk> todo = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                if (checkpoint.isDone(chunk.index)) {
+                    bytesDone.addAndGet(chunk.end - chunk.start);
+                } else {
+                    todo.add(chunk);
+                }
+            }
+            System.out.println("Importing " + csv + ": " + formatBytes(size) + " in " + chunks.size() + " chunks, "
+                    + (chunks.size() - todo.size()) + " already done. Parsers: " + parserThreads + ", writers: " + writerThreads + ".");
+
+            long startNanos = System.nanoTime();
+            long bytesAtStart = bytesDone.get();
+            BlockingQueue<ParsedChunk> queue = new ArrayBlockingQueue<>(writerThreads * 2); // Back-pressure on the parsers
+            ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "import-progress");
+                t.setDaemon(true);
+                return t;
+            });
+            progress.scheduleAtFixedRate(() -> printProgress(size, bytesAtStart, startNanos, queue),
+                    PROGRESS_INTERVAL_SECONDS, PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+            try (BufferedWriter rejectsWriter = Files.newBufferedWriter(rejectsFile(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                rejects = rejectsWriter;
+
+                List<Thread> writers = new ArrayList<>();
+                for (int i = 0; i < writerThreads; i++) {
+                    Thread writer = new Thread(() -> writeChunks(queue, checkpoint), "import-writer-" + (i + 1));
+                    writer.start();
+                    writers.add(writer);
+                }
+
+                ForkJoinPool parsePool = new ForkJoinPool(parserThreads);
+                CountDownLatch parsed = new CountDownLatch(todo.size());
+                for (Chunk chunk : todo) {
+                    parsePool.execute(() -> {
+                        try {
+                            // Blocks while the writers are behind; the pool is private to this import
+                            queue.put(parse(channel, chunk));
+                        } catch (IOException e) {
+                            System.err.println("Chunk " + chunk.index + ": could not read: " + e.getMessage());
+                            chunksFailed.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            parsed.countDown();
+                        }
+                    });
+                }
+                parsed.await();
+                parsePool.shutdown();
+                for (int i = 0; i < writerThreads; i++) {
+                    queue.put(ParsedChunk.END);
+                }
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+            } finally {
+                progress.shutdownNow();
+                checkpoint.close();
+            }
+
+            printProgress(size, bytesAtStart, startNanos, queue);
+            if (chunksFailed.get() == 0) {
+                Files.deleteIfExists(checkpointFile());
+                System.out.println("Import complete.");
+                return true;
+            }
+            System.err.println(chunksFailed.get() + " chunk(s) failed; run the same command again to retry them.");
+            return false;
+        }
+    }
+
+    // Cuts the file into chunks of roughly chunkSize bytes that end right after a line break.
+    // Deterministic for a given file and chunk size, which is what makes the checkpoint meaningful.
+    private List<Chunk> planChunks(FileChannel channel, long size) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            while (end < size) { // Move end to just past the next '\n'
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new Chunk(chunks.size(), start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private ParsedChunk parse(FileChannel channel, Chunk chunk) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+        List<Book> books = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        byte[] line = new byte[256];
+        int length = mapped.limit();
+        int lineStart = 0;
+        while (lineStart < length) {
+            // Split on '\n' bytes; in UTF-8 that byte never occurs inside a multi-byte character
+            int lineEnd = lineStart;
+            while (lineEnd < length && mapped.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int lineLength = lineEnd - lineStart;
+            if (lineLength > 0 && mapped.get(lineEnd - 1) == '\r') {
+                lineLength--;
+            }
+            if (line.length < lineLength) {
+                line = new byte[Math.max(lineLength, line.length * 2)];
+            }
+            mapped.position(lineStart);
+            mapped.get(line, 0, lineLength);
+            String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            boolean header = lineStart == 0 && chunk.index == 0 && text.toLowerCase().startsWith(HEADER[0]);
+            if (!header && !text.trim().isEmpty()) {
+                String problem = parseLine(text, books);
+                if (problem != null) {
+                    rejected.add((chunk.start + lineStart) + "\t" + problem + "\t" + text);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new ParsedChunk(chunk, books, rejected);
+    }
+
+    // Adds the book on the line to books, or returns why the line was rejected.
+    private static String parseLine(String line, List<Book> books) {
+        List<String> fields = splitCsv(line);
+        if (fields == null) {
+            return "unbalanced quotes";
+        }
+        if (fields.size() != HEADER.length) {
+            return "expected " + HEADER.length + " fields, got " + fields.size();
+        }
+        String bookId = fields.get(0).trim();
+        if (bookId.isEmpty() || !BookDao.fitsColumns(bookId, fields.get(1), fields.get(2), fields.get(3))) {
+            return "missing book_id or value too long";
+        }
+        int quantity;
+        int totalQuantity;
+        try {
+            quantity = Integer.parseInt(fields.get(4).trim());
+            totalQuantity = Integer.parseInt(fields.get(5).trim());
+        } catch (NumberFormatException e) {
+            return "quantity must be numbers";
+        }
+        if (quantity < 0 || totalQuantity < 0 || quantity > totalQuantity) {
+            return "invalid quantity values";
+        }
+        String category = fields.get(3).isEmpty() ? null : fields.get(3);
+        books.add(new Book(bookId, fields.get(1), fields.get(2), category, quantity, totalQuantity));
+        return null;
+    }
+
+    // Splits one CSV record. Returns null if a quoted field is not closed.
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(HEADER.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void writeChunks(BlockingQueue<ParsedChunk> queue, ImportCheckpoint checkpoint) {
+        Connection conn = null;
+        try {
+            conn = DatabaseManager.getConnection();
+            conn.setAutoCommit(false);
+            while (true) {
+                ParsedChunk parsed = queue.take();
+                if (parsed == ParsedChunk.END) {
+                    break;
+                }
+                try {
+                    bookDao.importBooks(parsed.books, replaceExisting, conn);
+                    conn.commit();
+                    // Before the checkpoint: a crash in between repeats these lines on the rerun rather than losing them
+                    writeRejects(parsed.rejects);
+                    checkpoint.markDone(parsed.chunk.index);
+                    rowsWritten.addAndGet(parsed.books.size());
+                    bytesDone.addAndGet(parsed.chunk.end - parsed.chunk.start);
+                } catch (SQLException e) {
+                    try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+                    System.err.println("Chunk " + parsed.chunk.index + ": write failed, will be retried on the next run: " + e.getMessage());
+                    chunksFailed.incrementAndGet();
+                } catch (RuntimeException e) {
+                    try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+                    chunksFailed.incrementAndGet();
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Writer failed, its remaining chunks will be retried on the next run: " + e);
+            e.printStackTrace();
+            drainAsFailed(queue); // Like the SQLException path: the parsers must not block on a dead writer
+        } catch (SQLException e) {
+            System.err.println("Writer could not connect to the database: " + e.getMessage());
+            // Keep draining so the parsers don't block forever; everything this writer takes counts as failed
+            drainAsFailed(queue);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Could not update checkpoint: " + e.getMessage());
+            drainAsFailed(queue);
+        } finally {
+            DatabaseManager.closeQuietly(conn);
+        }
+    }
+
+    private void drainAsFailed(BlockingQueue<ParsedChunk> queue) {
+        try {
+            while (queue.take() != ParsedChunk.END) {
+                chunksFailed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRejects(List<String> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        rowsRejected.addAndGet(lines.size());
+        synchronized (this) {
+            try {
+                for (String line : lines) {
+                    rejects.write(line);
+                    rejects.newLine();
+                }
+                rejects.flush();
+            } catch (IOException e) {
+                System.err.println("Could not write to rejects file: " + e.getMessage());
+            }
+        }
+    }
+
+    private void printProgress(long size, long bytesAtStart, long startNanos, BlockingQueue<ParsedChunk> queue) {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 0.001);
+        long done = bytesDone.get();
+        System.out.printf("Progress: %.1f%% (%s of %s), %,d rows written, %,d rejected, %,.0f rows/s, %s/s, queue %d/%d%n",
+                size == 0 ? 100.0 : done * 100.0 / size, formatBytes(done), formatBytes(size),
+                rowsWritten.get(), rowsRejected.get(), rowsWritten.get() / seconds,
+                formatBytes((long) ((done - bytesAtStart) / seconds)), queue.size(), writerThreads * 2);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + " KB";
+        }
+        if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private Path checkpointFile() {
+        return csv.resolveSibling(csv.getFileName() + ".checkpoint");
+    }
+
+    private Path rejectsFile() {
+        return csv.resolveSibling(csv.getFileName() + ".rejects");
+    }
+}
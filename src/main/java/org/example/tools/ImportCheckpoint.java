@@ -0,0 +1,75 @@
+package org.example.tools;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Progress file for CatalogImporter: a header line identifying the input (path, size, last-modified time and chunk
+ * size) followed by one line per committed chunk. Lines are appended and flushed right after each commit, so after
+ * a crash at most the chunk that was being committed is written again, which ON DUPLICATE KEY makes harmless.
+ */
+class ImportCheckpoint implements AutoCloseable {
+    private final BitSet done = new BitSet();
+    private final BufferedWriter out;
+
+    private ImportCheckpoint(BufferedWriter out) {
+        this.out = out;
+    }
+
+    // Reads an existing checkpoint for the same input, or starts a new one. Fails if it belongs to another input.
+    static ImportCheckpoint open(Path file, Path input, long size, long chunkSize) throws IOException {
+        String header = input.toAbsolutePath() + "\t" + size + "\t" + Files.getLastModifiedTime(input).toMillis() + "\t" + chunkSize;
+        BitSet done = new BitSet();
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (!lines.isEmpty()) {
+                if (!lines.get(0).equals(header)) {
+                    throw new IOException("Checkpoint " + file + " is for a different file or chunk size; "
+                            + "delete it to start over.");
+                }
+                for (String line : lines.subList(1, lines.size())) {
+                    try {
+                        done.set(Integer.parseInt(line.trim()));
+                    } catch (NumberFormatException e) {
+                        // Torn last line from a crash; that chunk simply runs again
+                    }
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // First run
+        }
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (Files.size(file) == 0) {
+            out.write(header);
+            out.newLine();
+            out.flush();
+        }
+        ImportCheckpoint checkpoint = new ImportCheckpoint(out);
+        checkpoint.done.or(done);
+        return checkpoint;
+    }
+
+    synchronized boolean isDone(int chunk) {
+        return done.get(chunk);
+    }
+
+    synchronized void markDone(int chunk) throws IOException {
+        done.set(chunk);
+        out.write(Integer.toString(chunk));
+        out.newLine();
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}